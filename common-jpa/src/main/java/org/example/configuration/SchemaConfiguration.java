@@ -0,0 +1,31 @@
+package org.example.configuration;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The schema is owned by the Flyway migrations in db/migration, which every service
+ * using the shared entities runs on startup. Hibernate only validates the mappings
+ * against it, whatever spring.jpa.hibernate.ddl-auto says.
+ */
+@Configuration
+public class SchemaConfiguration {
+
+    /**
+     * Databases created by ddl-auto have no history table yet: they are baselined at
+     * version 0 and brought forward by V1, which is written to be idempotent.
+     */
+    @Bean
+    public FlywayConfigurationCustomizer baselineExistingSchemaCustomizer() {
+        return configuration -> configuration
+                .baselineOnMigrate(true)
+                .baselineVersion("0");
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer schemaValidationCustomizer() {
+        return properties -> properties.put("hibernate.hbm2ddl.auto", "validate");
+    }
+}
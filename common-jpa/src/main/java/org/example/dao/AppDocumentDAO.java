@@ -1,7 +1,21 @@
 package org.example.dao;
 
+import org.example.dao.projection.FileMetadata;
 import org.example.entity.AppDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface AppDocumentDAO extends JpaRepository<AppDocument,Long> {
+    @Query("select distinct d.binaryContent.id from AppDocument d where d.telegramFileUniqueId = :fileUniqueId")
+    List<Long> findBinaryContentIdsByTelegramFileUniqueId(@Param("fileUniqueId") String fileUniqueId);
+
+    @Query("select d.id as id, d.docName as fileName, d.mimeType as mimeType, b.fileSize as fileSize, " +
+            "b.contentRef as contentRef, b.contentHash as contentHash, " +
+            "b.storedSize as storedSize, b.codec as codec " +
+            "from AppDocument d join d.binaryContent b where d.id = :id")
+    Optional<FileMetadata> findMetadataById(@Param("id") Long id);
 }
@@ -1,7 +1,21 @@
 package org.example.dao;
 
+import org.example.dao.projection.FileMetadata;
 import org.example.entity.AppPhoto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface AppPhotoDAO extends JpaRepository<AppPhoto,Long> {
+    @Query("select distinct p.binaryContent.id from AppPhoto p where p.telegramFileUniqueId = :fileUniqueId")
+    List<Long> findBinaryContentIdsByTelegramFileUniqueId(@Param("fileUniqueId") String fileUniqueId);
+
+    @Query("select p.id as id, b.fileSize as fileSize, " +
+            "b.contentRef as contentRef, b.contentHash as contentHash, " +
+            "b.storedSize as storedSize, b.codec as codec " +
+            "from AppPhoto p join p.binaryContent b where p.id = :id")
+    Optional<FileMetadata> findMetadataById(@Param("id") Long id);
 }
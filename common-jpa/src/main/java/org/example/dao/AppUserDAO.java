@@ -1,12 +1,62 @@
 package org.example.dao;
 
+import org.example.dao.projection.AppUserId;
 import org.example.entity.AppUser;
+import org.example.entity.enums.UserState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface AppUserDAO extends JpaRepository<AppUser,Long> {
     Optional<AppUser> findByTelegramUserId(Long id);
+    Optional<AppUserId> findIdByTelegramUserId(Long telegramUserId);
+    List<AppUserId> findIdsByTelegramUserIdIn(Collection<Long> telegramUserIds);
     Optional<AppUser> findById(Long id);
     Optional<AppUser> findByEmail(String email);
+
+    @Transactional
+    @Modifying
+    @Query("update AppUser u set u.state = :state where u.id = :id")
+    int updateState(@Param("id") Long id, @Param("state") UserState state);
+
+    @Transactional
+    @Modifying
+    @Query("update AppUser u set u.email = :email, u.state = :state where u.id = :id and (u.isActive = false or u.isActive is null)")
+    int updateUnconfirmedEmail(@Param("id") Long id, @Param("email") String email, @Param("state") UserState state);
+
+    @Transactional
+    @Modifying
+    @Query("update AppUser u set u.activationMailSentAt = :sentAt where u.id = :id")
+    int markActivationMailSent(@Param("id") Long id, @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * Marks the activation mail of an unconfirmed email as sent again, unless the
+     * last one was sent at or after sentBefore.
+     *
+     * @return 0 if the mail must not be resent
+     */
+    @Transactional
+    @Modifying
+    @Query("update AppUser u set u.activationMailSentAt = :sentAt where u.id = :id and u.email is not null"
+            + " and (u.isActive = false or u.isActive is null)"
+            + " and (u.activationMailSentAt is null or u.activationMailSentAt < :sentBefore)")
+    int markActivationMailResent(@Param("id") Long id, @Param("sentAt") LocalDateTime sentAt,
+                                 @Param("sentBefore") LocalDateTime sentBefore);
+
+    @Transactional
+    @Modifying
+    @Query("update AppUser u set u.isActive = true where u.id = :id and (u.isActive = false or u.isActive is null)")
+    int activate(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("update AppUser u set u.email = null where u.id = :id and u.email = :email and (u.isActive = false or u.isActive is null)")
+    int clearUnconfirmedEmail(@Param("id") Long id, @Param("email") String email);
 }
@@ -2,7 +2,34 @@ package org.example.dao;
 
 import org.example.entity.BinaryContent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface BinaryContentDAO extends JpaRepository<BinaryContent,Long> {
+import java.util.Optional;
 
+public interface BinaryContentDAO extends JpaRepository<BinaryContent,Long>, BinaryContentUpsertDAO {
+    @Query("select b.id from BinaryContent b where b.contentHash = :contentHash")
+    Optional<Long> findIdByContentHash(@Param("contentHash") String contentHash);
+
+    @Query("select b.contentRef from BinaryContent b where b.id = :id")
+    Optional<String> findContentRefById(@Param("id") Long id);
+
+    boolean existsByContentRef(String contentRef);
+
+    @Transactional
+    @Modifying
+    @Query("update BinaryContent b set b.refCount = coalesce(b.refCount, 1) + 1 where b.id = :id")
+    int incrementRefCount(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("update BinaryContent b set b.refCount = coalesce(b.refCount, 1) - 1 where b.id = :id")
+    int decrementRefCount(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from BinaryContent b where b.id = :id and b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("id") Long id);
 }
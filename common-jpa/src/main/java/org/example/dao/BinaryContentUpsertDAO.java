@@ -0,0 +1,13 @@
+package org.example.dao;
+
+import org.example.entity.BinaryContent;
+
+public interface BinaryContentUpsertDAO {
+    /**
+     * Inserts {@code binaryContent} with a single reference. If a row with the same
+     * content hash already exists, that row gains a reference instead.
+     *
+     * @return the row now holding the content, with its id and content reference
+     */
+    BinaryContent upsert(BinaryContent binaryContent);
+}
@@ -0,0 +1,36 @@
+package org.example.dao;
+
+import org.example.entity.BinaryContent;
+import org.example.entity.enums.ContentCodec;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class BinaryContentUpsertDAOImpl implements BinaryContentUpsertDAO {
+    private static final String UPSERT_CONTENT = """
+            INSERT INTO binary_conent (id, content_hash, ref_count, content_ref, file_size, stored_size, codec)
+            VALUES (nextval('binary_content_seq'), ?, 1, ?, ?, ?, ?)
+            ON CONFLICT (content_hash) DO UPDATE SET ref_count = COALESCE(binary_conent.ref_count, 1) + 1
+            RETURNING id, content_ref, stored_size, COALESCE(codec, 'IDENTITY') AS codec
+            """;
+    private final JdbcTemplate jdbcTemplate;
+
+    public BinaryContentUpsertDAOImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public BinaryContent upsert(BinaryContent binaryContent) {
+        return jdbcTemplate.queryForObject(UPSERT_CONTENT, (rs, rowNum) -> BinaryContent.builder()
+                        .id(rs.getLong("id"))
+                        .contentRef(rs.getString("content_ref"))
+                        .contentHash(binaryContent.getContentHash())
+                        .fileSize(binaryContent.getFileSize())
+                        .storedSize(rs.getLong("stored_size"))
+                        .codec(ContentCodec.valueOf(rs.getString("codec")))
+                        .build(),
+                binaryContent.getContentHash(),
+                binaryContent.getContentRef(),
+                binaryContent.getFileSize(),
+                binaryContent.getStoredSize(),
+                binaryContent.getCodec().name());
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.dao.projection;
+
+/**
+ * The id of a user found by Telegram user id, without loading the user.
+ */
+public interface AppUserId {
+    Long getId();
+    Long getTelegramUserId();
+}
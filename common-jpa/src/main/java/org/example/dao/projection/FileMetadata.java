@@ -0,0 +1,18 @@
+package org.example.dao.projection;
+
+import org.example.entity.enums.ContentCodec;
+
+/**
+ * Everything needed to build a download response without loading the entity graph.
+ * Photo lookups leave the file name and mime type empty.
+ */
+public interface FileMetadata {
+    Long getId();
+    String getFileName();
+    String getMimeType();
+    Long getFileSize();
+    String getContentRef();
+    String getContentHash();
+    Long getStoredSize();
+    ContentCodec getCodec();
+}
@@ -8,15 +8,17 @@ import javax.persistence.*;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "app_document")
+@Table(name = "app_document", indexes = @Index(columnList = "telegramFileUniqueId"))
 @Entity
 public class AppDocument {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "app_document_seq")
+    @SequenceGenerator(name = "app_document_seq", sequenceName = "app_document_seq", allocationSize = 50)
     private Long id;
     private String telegramField;
+    private String telegramFileUniqueId;
     private String docName;
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private BinaryContent binaryContent;
     private String mimeType;
     private Long fileSize;
@@ -9,14 +9,16 @@ import javax.persistence.*;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "app_photo")
+@Table(name = "app_photo", indexes = @Index(columnList = "telegramFileUniqueId"))
 @Entity
 public class AppPhoto {
         @Id
-        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "app_photo_seq")
+        @SequenceGenerator(name = "app_photo_seq", sequenceName = "app_photo_seq", allocationSize = 50)
         private Long id;
         private String telegramField;
-        @OneToOne
+        private String telegramFileUniqueId;
+        @ManyToOne(fetch = FetchType.LAZY)
         private BinaryContent binaryContent;
         private Integer fileSize;
 
@@ -13,20 +13,24 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(exclude = "id")
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "app_document")
+@Table(name = "app_user")
 @Entity
 public class AppUser {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "app_user_seq")
+    @SequenceGenerator(name = "app_user_seq", sequenceName = "app_user_seq", allocationSize = 50)
     private Long id;
+    @Column(unique = true)
     private Long telegramUserId;
     @CreationTimestamp
     private LocalDateTime firstLoginDate;
     private String firstName;
     private String lastName;
     private String userName;
+    @Column(unique = true)
     private String email;
     private Boolean isActive;
     @Enumerated(EnumType.STRING)
     private UserState state;
+    private LocalDateTime activationMailSentAt;
 }
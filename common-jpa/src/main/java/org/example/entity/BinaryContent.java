@@ -2,6 +2,7 @@ package org.example.entity;
 
 
 import lombok.*;
+import org.example.entity.enums.ContentCodec;
 
 import javax.persistence.*;
 @Getter
@@ -14,7 +15,17 @@ import javax.persistence.*;
 @Entity
 public class BinaryContent {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "binary_content_seq")
+    @SequenceGenerator(name = "binary_content_seq", sequenceName = "binary_content_seq", allocationSize = 50)
     private Long id;
-    private byte[] fileAsArrayOfBytes;
+    private String contentRef;
+    private Long fileSize;
+    private Long storedSize;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ContentCodec codec;
+    @Column(unique = true)
+    private String contentHash;
+    @Column(nullable = false)
+    private Long refCount;
 }
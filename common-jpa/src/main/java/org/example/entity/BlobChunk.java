@@ -0,0 +1,33 @@
+package org.example.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "blob_chunk")
+@IdClass(BlobChunk.BlobChunkId.class)
+@Entity
+public class BlobChunk {
+    @Id
+    private Long blobId;
+    @Id
+    private Integer seq;
+    private byte[] data;
+
+    @Getter
+    @Setter
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BlobChunkId implements Serializable {
+        private Long blobId;
+        private Integer seq;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+@Getter
+@Setter
+@EqualsAndHashCode(exclude = "id")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "blob_data")
+@Entity
+public class BlobData {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Integer chunkSize;
+    private Long totalSize;
+}
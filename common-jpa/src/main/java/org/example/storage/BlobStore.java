@@ -0,0 +1,34 @@
+package org.example.storage;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface BlobStore {
+    boolean supports(String contentRef);
+
+    /**
+     * Copies {@code source}, the bytes exactly as they are to be stored, into the store.
+     *
+     * @return reference to keep in {@link org.example.entity.BinaryContent#getContentRef()}
+     */
+    String write(Path source);
+
+    default InputStream read(String contentRef) {
+        return read(contentRef, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Opens {@code length} bytes of the content starting at {@code offset}, fewer if
+     * the content ends first.
+     */
+    InputStream read(String contentRef, long offset, long length);
+
+    /**
+     * @return the file holding the content when it lives on local disk, so it can be
+     * served without passing through the heap
+     */
+    Optional<Path> findLocalPath(String contentRef);
+
+    void delete(String contentRef);
+}
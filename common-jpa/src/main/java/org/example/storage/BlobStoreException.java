@@ -0,0 +1,15 @@
+package org.example.storage;
+
+public class BlobStoreException extends RuntimeException {
+    public BlobStoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public BlobStoreException(String message) {
+        super(message);
+    }
+
+    public BlobStoreException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,6 @@
+package org.example.storage;
+
+public enum BlobStoreType {
+    DATABASE,
+    FILESYSTEM
+}
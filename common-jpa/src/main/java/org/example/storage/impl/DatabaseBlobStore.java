@@ -0,0 +1,163 @@
+package org.example.storage.impl;
+
+import org.example.storage.BlobStore;
+import org.example.storage.BlobStoreException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+/**
+ * Keeps blobs in Postgres split into fixed-size rows of blob_chunk, so large content
+ * is written one chunk per statement and a byte range only reads the chunks it covers.
+ */
+@Component
+public class DatabaseBlobStore implements BlobStore {
+    private static final String REF_PREFIX = "db:";
+    private static final String INSERT_BLOB = "INSERT INTO blob_data (chunk_size, total_size) VALUES (?, ?)";
+    private static final String INSERT_CHUNK = "INSERT INTO blob_chunk (blob_id, seq, data) VALUES (?, ?, ?)";
+    private static final String SELECT_CHUNK_SIZE = "SELECT chunk_size FROM blob_data WHERE id = ?";
+    private static final String SELECT_CHUNK = "SELECT data FROM blob_chunk WHERE blob_id = ? AND seq = ?";
+    private static final String DELETE_CHUNKS = "DELETE FROM blob_chunk WHERE blob_id = ?";
+    private static final String DELETE_BLOB = "DELETE FROM blob_data WHERE id = ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public DatabaseBlobStore(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${blob.store.database.chunk_size:1048576}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean supports(String contentRef) {
+        return contentRef != null && contentRef.startsWith(REF_PREFIX);
+    }
+
+    @Override
+    public String write(Path source) {
+        return transactionTemplate.execute(status -> writeChunks(source));
+    }
+
+    @Override
+    public InputStream read(String contentRef, long offset, long length) {
+        var blobId = idOf(contentRef);
+        var size = jdbcTemplate.query(SELECT_CHUNK_SIZE, rs -> rs.next() ? rs.getInt(1) : null, blobId);
+        if (size == null) {
+            throw new BlobStoreException("Blob not found: " + contentRef);
+        }
+        var firstSeq = Math.toIntExact(offset / size);
+        var skip = (int) (offset % size);
+        return new BoundedInputStream(new ChunkedBlobInputStream(seq -> readChunk(blobId, seq), firstSeq, skip), length);
+    }
+
+    @Override
+    public Optional<Path> findLocalPath(String contentRef) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void delete(String contentRef) {
+        var blobId = idOf(contentRef);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_CHUNKS, blobId);
+            jdbcTemplate.update(DELETE_BLOB, blobId);
+        });
+    }
+
+    private String writeChunks(Path source) {
+        try (InputStream is = Files.newInputStream(source)) {
+            long totalSize = Files.size(source);
+            var keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                var statement = connection.prepareStatement(INSERT_BLOB, new String[]{"id"});
+                statement.setInt(1, chunkSize);
+                statement.setLong(2, totalSize);
+                return statement;
+            }, keyHolder);
+            var blobId = keyHolder.getKey().longValue();
+            var chunk = new byte[chunkSize];
+            var seq = 0;
+            int read;
+            while ((read = is.readNBytes(chunk, 0, chunkSize)) > 0) {
+                var data = read == chunkSize ? chunk : Arrays.copyOf(chunk, read);
+                jdbcTemplate.update(INSERT_CHUNK, blobId, seq++, data);
+            }
+            return REF_PREFIX + blobId;
+        } catch (IOException e) {
+            throw new BlobStoreException("Failed to store " + source, e);
+        }
+    }
+
+    private byte[] readChunk(Long blobId, int seq) {
+        return jdbcTemplate.query(SELECT_CHUNK, rs -> rs.next() ? rs.getBytes(1) : null, blobId, seq);
+    }
+
+    private static Long idOf(String contentRef) {
+        return Long.valueOf(contentRef.substring(REF_PREFIX.length()));
+    }
+
+    /**
+     * Holds a single chunk at a time and loads the next one only when the current one
+     * has been consumed.
+     */
+    private static class ChunkedBlobInputStream extends InputStream {
+        private final IntFunction<byte[]> chunkLoader;
+        private int nextSeq;
+        private int skip;
+        private byte[] chunk = new byte[0];
+        private int position;
+        private boolean exhausted;
+
+        ChunkedBlobInputStream(IntFunction<byte[]> chunkLoader, int firstSeq, int skip) {
+            this.chunkLoader = chunkLoader;
+            this.nextSeq = firstSeq;
+            this.skip = skip;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var buffer = new byte[1];
+            return read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (position == chunk.length) {
+                if (exhausted) {
+                    return -1;
+                }
+                var next = chunkLoader.apply(nextSeq++);
+                if (next == null || next.length <= skip) {
+                    exhausted = true;
+                    chunk = new byte[0];
+                    position = 0;
+                    return -1;
+                }
+                chunk = next;
+                position = skip;
+                skip = 0;
+            }
+            var count = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, count);
+            position += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.storage.impl;
+
+import lombok.extern.log4j.Log4j;
+import org.example.storage.BlobStore;
+import org.example.storage.BlobStoreException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Keeps blobs as files under {@code blob.store.filesystem.root}, sharded into two
+ * directory levels by the first characters of the key. The key is the SHA-256 of the
+ * stored bytes, so the same content encoded differently never shares a file. Content
+ * is first written and synced to a staging file next to the shards, then renamed
+ * into place: right away, or when the surrounding transaction commits. An existing
+ * file is never replaced; it already holds the same bytes.
+ */
+@Log4j
+@Component
+public class FileSystemBlobStore implements BlobStore {
+    private static final String REF_PREFIX = "fs:";
+    private static final String STAGING_DIR = ".staging";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private final Path root;
+
+    public FileSystemBlobStore(@Value("${blob.store.filesystem.root:blob-store}") String root) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public boolean supports(String contentRef) {
+        return contentRef != null && contentRef.startsWith(REF_PREFIX);
+    }
+
+    @Override
+    public String write(Path source) {
+        var staged = stage(source);
+        var key = staged.key();
+        var relativePath = key.substring(0, 2) + "/" + key.substring(2, 4) + "/" + key;
+        var target = root.resolve(relativePath);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    publish(staged.path(), target);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        deleteQuietly(staged.path());
+                    }
+                }
+            });
+        } else {
+            publish(staged.path(), target);
+        }
+        return REF_PREFIX + relativePath;
+    }
+
+    @Override
+    public InputStream read(String contentRef, long offset, long length) {
+        try {
+            var channel = FileChannel.open(pathOf(contentRef), READ).position(offset);
+            return new BoundedInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            throw new BlobStoreException("Failed to read " + contentRef, e);
+        }
+    }
+
+    @Override
+    public Optional<Path> findLocalPath(String contentRef) {
+        return Optional.of(pathOf(contentRef));
+    }
+
+    @Override
+    public void delete(String contentRef) {
+        try {
+            Files.deleteIfExists(pathOf(contentRef));
+        } catch (IOException e) {
+            throw new BlobStoreException("Failed to delete " + contentRef, e);
+        }
+    }
+
+    private StagedBlob stage(Path source) {
+        try {
+            var stagingDir = Files.createDirectories(root.resolve(STAGING_DIR));
+            var staged = stagingDir.resolve(UUID.randomUUID().toString());
+            var digest = createDigest();
+            try (var in = FileChannel.open(source, READ);
+                 var out = FileChannel.open(staged, CREATE_NEW, WRITE)) {
+                var buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                out.force(true);
+            } catch (IOException e) {
+                deleteQuietly(staged);
+                throw e;
+            }
+            return new StagedBlob(staged, HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException e) {
+            throw new BlobStoreException("Failed to stage " + source, e);
+        }
+    }
+
+    private void publish(Path staged, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            // no REPLACE_EXISTING: a file that is already there may be in use by another row
+            Files.move(staged, target);
+        } catch (FileAlreadyExistsException e) {
+            deleteQuietly(staged);
+        } catch (IOException e) {
+            deleteQuietly(staged);
+            throw new BlobStoreException("Failed to publish blob " + target, e);
+        }
+    }
+
+    private Path pathOf(String contentRef) {
+        var path = root.resolve(contentRef.substring(REF_PREFIX.length())).normalize();
+        if (!path.startsWith(root)) {
+            throw new BlobStoreException("Invalid content reference: " + contentRef);
+        }
+        return path;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.error("Failed to delete staged blob " + path, e);
+        }
+    }
+
+    private record StagedBlob(Path path, String key) {
+    }
+}
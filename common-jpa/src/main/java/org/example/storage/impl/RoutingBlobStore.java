@@ -0,0 +1,64 @@
+package org.example.storage.impl;
+
+import org.example.storage.BlobStore;
+import org.example.storage.BlobStoreException;
+import org.example.storage.BlobStoreType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Writes new blobs to the backend selected by {@code blob.store.type} and resolves
+ * existing references by their prefix, so content written before a backend switch
+ * stays readable.
+ */
+@Primary
+@Component
+public class RoutingBlobStore implements BlobStore {
+    private final BlobStore writeStore;
+    private final List<BlobStore> stores;
+
+    public RoutingBlobStore(DatabaseBlobStore databaseBlobStore,
+                            FileSystemBlobStore fileSystemBlobStore,
+                            @Value("${blob.store.type:database}") BlobStoreType blobStoreType) {
+        this.writeStore = blobStoreType == BlobStoreType.FILESYSTEM ? fileSystemBlobStore : databaseBlobStore;
+        this.stores = List.of(databaseBlobStore, fileSystemBlobStore);
+    }
+
+    @Override
+    public boolean supports(String contentRef) {
+        return stores.stream().anyMatch(store -> store.supports(contentRef));
+    }
+
+    @Override
+    public String write(Path source) {
+        return writeStore.write(source);
+    }
+
+    @Override
+    public InputStream read(String contentRef, long offset, long length) {
+        return storeFor(contentRef).read(contentRef, offset, length);
+    }
+
+    @Override
+    public Optional<Path> findLocalPath(String contentRef) {
+        return storeFor(contentRef).findLocalPath(contentRef);
+    }
+
+    @Override
+    public void delete(String contentRef) {
+        storeFor(contentRef).delete(contentRef);
+    }
+
+    private BlobStore storeFor(String contentRef) {
+        return stores.stream()
+                .filter(store -> store.supports(contentRef))
+                .findFirst()
+                .orElseThrow(() -> new BlobStoreException("No blob store for reference " + contentRef));
+    }
+}
@@ -0,0 +1,85 @@
+-- Schema as it was left by hibernate.hbm2ddl.auto=update. Every statement is
+-- idempotent, so the script brings both empty databases and ones created by
+-- Hibernate (baselined at version 0) to the same starting point.
+
+CREATE TABLE IF NOT EXISTS binary_conent (
+    id           bigint PRIMARY KEY,
+    content_ref  varchar(255),
+    file_size    bigint,
+    stored_size  bigint,
+    codec        varchar(255),
+    content_hash varchar(255) UNIQUE,
+    ref_count    bigint
+);
+ALTER TABLE binary_conent ADD COLUMN IF NOT EXISTS content_ref varchar(255);
+ALTER TABLE binary_conent ADD COLUMN IF NOT EXISTS file_size bigint;
+ALTER TABLE binary_conent ADD COLUMN IF NOT EXISTS stored_size bigint;
+ALTER TABLE binary_conent ADD COLUMN IF NOT EXISTS codec varchar(255);
+ALTER TABLE binary_conent ADD COLUMN IF NOT EXISTS content_hash varchar(255);
+ALTER TABLE binary_conent ADD COLUMN IF NOT EXISTS ref_count bigint;
+CREATE UNIQUE INDEX IF NOT EXISTS binary_conent_content_hash_key ON binary_conent (content_hash);
+
+CREATE TABLE IF NOT EXISTS app_document (
+    id                      bigint PRIMARY KEY,
+    telegram_field          varchar(255),
+    telegram_file_unique_id varchar(255),
+    doc_name                varchar(255),
+    binary_content_id       bigint REFERENCES binary_conent (id),
+    mime_type               varchar(255),
+    file_size               bigint
+);
+ALTER TABLE app_document ADD COLUMN IF NOT EXISTS telegram_file_unique_id varchar(255);
+CREATE INDEX IF NOT EXISTS app_document_telegram_file_unique_id_idx ON app_document (telegram_file_unique_id);
+
+CREATE TABLE IF NOT EXISTS app_photo (
+    id                      bigint PRIMARY KEY,
+    telegram_field          varchar(255),
+    telegram_file_unique_id varchar(255),
+    binary_content_id       bigint REFERENCES binary_conent (id),
+    file_size               integer
+);
+ALTER TABLE app_photo ADD COLUMN IF NOT EXISTS telegram_file_unique_id varchar(255);
+CREATE INDEX IF NOT EXISTS app_photo_telegram_file_unique_id_idx ON app_photo (telegram_file_unique_id);
+
+CREATE TABLE IF NOT EXISTS blob_data (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    chunk_size integer,
+    total_size bigint
+);
+ALTER TABLE blob_data ADD COLUMN IF NOT EXISTS chunk_size integer;
+ALTER TABLE blob_data ADD COLUMN IF NOT EXISTS total_size bigint;
+
+CREATE TABLE IF NOT EXISTS blob_chunk (
+    blob_id bigint  NOT NULL,
+    seq     integer NOT NULL,
+    data    bytea,
+    PRIMARY KEY (blob_id, seq)
+);
+
+CREATE TABLE IF NOT EXISTS raw_data (
+    id    bigint PRIMARY KEY,
+    event jsonb
+);
+
+-- Pooled sequences (allocationSize = 50) replace the IDENTITY columns Hibernate
+-- used to create. A sequence only ever moves forward: it is pushed one block
+-- above max(id), or left alone if it is already past that.
+CREATE OR REPLACE FUNCTION pg_temp.to_pooled_sequence(table_name text, sequence_name text) RETURNS void AS $$
+DECLARE
+    max_id bigint;
+    last_id bigint;
+BEGIN
+    EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50', sequence_name);
+    EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', table_name) INTO max_id;
+    EXECUTE format('SELECT last_value FROM %I', sequence_name) INTO last_id;
+    -- once v has been handed out the next block is (v + 1) .. (v + 50)
+    PERFORM setval(sequence_name, GREATEST(last_id, max_id + 50), true);
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', table_name);
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', table_name, sequence_name);
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT pg_temp.to_pooled_sequence('app_document', 'app_document_seq');
+SELECT pg_temp.to_pooled_sequence('app_photo', 'app_photo_seq');
+SELECT pg_temp.to_pooled_sequence('binary_conent', 'binary_content_seq');
+SELECT pg_temp.to_pooled_sequence('raw_data', 'raw_data_seq');
@@ -0,0 +1,47 @@
+-- Content stored before the blob store existed still lives inline, either in
+-- binary_conent.file_as_array_of_bytes or in blob_data.data (blobs written
+-- before chunking). Both are split into 1 MiB rows of blob_chunk, the default
+-- blob.store.database.chunk_size, and the inline columns are dropped.
+
+DO $$
+DECLARE
+    legacy_chunk_size CONSTANT integer := 1048576;
+    legacy record;
+    new_blob_id bigint;
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'blob_data' AND column_name = 'data') THEN
+        FOR legacy IN SELECT id, data FROM blob_data WHERE chunk_size IS NULL LOOP
+            INSERT INTO blob_chunk (blob_id, seq, data)
+            SELECT legacy.id, s, substring(COALESCE(legacy.data, ''::bytea) FROM s * legacy_chunk_size + 1 FOR legacy_chunk_size)
+            FROM generate_series(0, GREATEST(ceil(COALESCE(length(legacy.data), 0)::numeric / legacy_chunk_size)::integer - 1, 0)) AS s;
+            UPDATE blob_data
+            SET chunk_size = legacy_chunk_size,
+                total_size = COALESCE(total_size, length(legacy.data), 0)
+            WHERE id = legacy.id;
+        END LOOP;
+        ALTER TABLE blob_data DROP COLUMN data;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'binary_conent' AND column_name = 'file_as_array_of_bytes') THEN
+        FOR legacy IN SELECT id, file_as_array_of_bytes AS data FROM binary_conent
+                      WHERE content_ref IS NULL AND file_as_array_of_bytes IS NOT NULL LOOP
+            INSERT INTO blob_data (chunk_size, total_size)
+            VALUES (legacy_chunk_size, length(legacy.data))
+            RETURNING id INTO new_blob_id;
+            INSERT INTO blob_chunk (blob_id, seq, data)
+            SELECT new_blob_id, s, substring(legacy.data FROM s * legacy_chunk_size + 1 FOR legacy_chunk_size)
+            FROM generate_series(0, GREATEST(ceil(length(legacy.data)::numeric / legacy_chunk_size)::integer - 1, 0)) AS s;
+            UPDATE binary_conent
+            SET content_ref = 'db:' || new_blob_id,
+                file_size   = COALESCE(file_size, length(legacy.data)),
+                stored_size = length(legacy.data),
+                codec       = COALESCE(codec, 'IDENTITY'),
+                ref_count   = COALESCE(ref_count, 1)
+            WHERE id = legacy.id;
+        END LOOP;
+        ALTER TABLE binary_conent DROP COLUMN file_as_array_of_bytes;
+    END IF;
+END;
+$$;
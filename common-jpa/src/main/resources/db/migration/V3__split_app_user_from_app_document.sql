@@ -0,0 +1,42 @@
+-- AppUser used to be mapped onto app_document, so users and documents shared one
+-- table and one id sequence. Users move to app_user with their ids unchanged.
+
+CREATE TABLE app_user (
+    id               bigint PRIMARY KEY,
+    telegram_user_id bigint,
+    first_login_date timestamp,
+    first_name       varchar(255),
+    last_name        varchar(255),
+    user_name        varchar(255),
+    email            varchar(255),
+    is_active        boolean,
+    state            varchar(255)
+);
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'app_document' AND column_name = 'telegram_user_id') THEN
+        INSERT INTO app_user (id, telegram_user_id, first_login_date, first_name, last_name, user_name, email, is_active, state)
+        SELECT id, telegram_user_id, first_login_date, first_name, last_name, user_name, email, is_active, state
+        FROM app_document
+        WHERE telegram_user_id IS NOT NULL;
+
+        DELETE FROM app_document WHERE telegram_user_id IS NOT NULL;
+
+        ALTER TABLE app_document
+            DROP COLUMN telegram_user_id,
+            DROP COLUMN IF EXISTS first_login_date,
+            DROP COLUMN IF EXISTS first_name,
+            DROP COLUMN IF EXISTS last_name,
+            DROP COLUMN IF EXISTS user_name,
+            DROP COLUMN IF EXISTS email,
+            DROP COLUMN IF EXISTS is_active,
+            DROP COLUMN IF EXISTS state;
+    END IF;
+END;
+$$;
+
+CREATE SEQUENCE app_user_seq INCREMENT BY 50;
+SELECT setval('app_user_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM app_user), true);
+ALTER TABLE app_user ALTER COLUMN id SET DEFAULT nextval('app_user_seq');
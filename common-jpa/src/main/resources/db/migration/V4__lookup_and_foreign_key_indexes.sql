@@ -0,0 +1,75 @@
+-- Users are looked up by Telegram id on every update and by email when an
+-- address is set, so both become unique. Rows created by concurrent first
+-- messages are collapsed onto the oldest one, which first takes over the
+-- registration of its copies: it is active if any copy was, with the email and
+-- state of the active copy, else of the newest copy that has an email. An
+-- address held by different Telegram users cannot be merged; the migration
+-- stops and lists them so they can be resolved by hand.
+
+UPDATE app_user survivor
+SET email     = merged.email,
+    is_active = merged.is_active,
+    state     = merged.state
+FROM (
+    SELECT DISTINCT ON (telegram_user_id)
+           telegram_user_id,
+           min(id) OVER copies AS survivor_id,
+           email,
+           bool_or(COALESCE(is_active, false)) OVER copies AS is_active,
+           state
+    FROM app_user
+    WHERE telegram_user_id IN (SELECT telegram_user_id FROM app_user GROUP BY telegram_user_id HAVING count(*) > 1)
+    WINDOW copies AS (PARTITION BY telegram_user_id)
+    ORDER BY telegram_user_id, COALESCE(is_active, false) DESC, email IS NULL, id DESC
+) merged
+WHERE survivor.id = merged.survivor_id;
+
+DELETE FROM app_user duplicate
+USING app_user original
+WHERE duplicate.telegram_user_id = original.telegram_user_id
+  AND duplicate.id > original.id;
+
+DO $$
+DECLARE
+    shared_emails text;
+BEGIN
+    SELECT string_agg(format('%s (app_user %s)', email, ids), ', ')
+    INTO shared_emails
+    FROM (SELECT email, string_agg(id::text, ', ' ORDER BY id) AS ids
+          FROM app_user
+          WHERE email IS NOT NULL
+          GROUP BY email
+          HAVING count(*) > 1) shared;
+    IF shared_emails IS NOT NULL THEN
+        RAISE EXCEPTION 'Emails registered by several Telegram users, keep each on one account first: %', shared_emails;
+    END IF;
+END;
+$$;
+
+CREATE UNIQUE INDEX app_user_telegram_user_id_key ON app_user (telegram_user_id);
+CREATE UNIQUE INDEX app_user_email_key ON app_user (email);
+
+-- Postgres does not index the referencing side of a foreign key. Releasing a
+-- shared blob and deleting binary_conent rows check these columns.
+CREATE INDEX IF NOT EXISTS app_document_binary_content_id_idx ON app_document (binary_content_id);
+CREATE INDEX IF NOT EXISTS app_photo_binary_content_id_idx ON app_photo (binary_content_id);
+
+-- Hibernate created these columns as @OneToOne with a unique key; blobs are
+-- shared between rows since content is deduplicated, so that key has to go.
+DO $$
+DECLARE
+    unique_key record;
+BEGIN
+    FOR unique_key IN
+        SELECT c.conrelid::regclass AS table_name, c.conname
+        FROM pg_constraint c
+        JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = c.conkey[1]
+        WHERE c.contype = 'u'
+          AND c.conrelid IN ('app_document'::regclass, 'app_photo'::regclass)
+          AND array_length(c.conkey, 1) = 1
+          AND a.attname = 'binary_content_id'
+    LOOP
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', unique_key.table_name, unique_key.conname);
+    END LOOP;
+END;
+$$;
@@ -0,0 +1,15 @@
+-- Rows written before content was compressed and deduplicated have neither a
+-- codec nor a reference count. Their bytes were stored as they came, and the
+-- count is taken from the documents and photos actually pointing at them.
+
+UPDATE binary_conent
+SET codec = 'IDENTITY'
+WHERE codec IS NULL;
+
+UPDATE binary_conent content
+SET ref_count = (SELECT count(*) FROM app_document d WHERE d.binary_content_id = content.id)
+              + (SELECT count(*) FROM app_photo p WHERE p.binary_content_id = content.id)
+WHERE ref_count IS NULL;
+
+ALTER TABLE binary_conent ALTER COLUMN codec SET NOT NULL;
+ALTER TABLE binary_conent ALTER COLUMN ref_count SET NOT NULL;
@@ -0,0 +1,11 @@
+-- An update is stored once, however often it is handed to the raw data service:
+-- a text batch that fails is replayed update by update, and a message that was
+-- not acknowledged is redelivered. Copies already stored are collapsed onto the
+-- oldest row first.
+
+DELETE FROM raw_data duplicate
+USING raw_data original
+WHERE (duplicate.event ->> 'update_id')::bigint = (original.event ->> 'update_id')::bigint
+  AND duplicate.id > original.id;
+
+CREATE UNIQUE INDEX raw_data_update_id_key ON raw_data (((event ->> 'update_id')::bigint));
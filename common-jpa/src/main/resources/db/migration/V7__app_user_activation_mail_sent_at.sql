@@ -0,0 +1,4 @@
+-- When the last activation mail was sent, so /registration can resend it only
+-- once a cooldown has passed. Users waiting for a mail today may get one resend.
+
+ALTER TABLE app_user ADD COLUMN activation_mail_sent_at timestamp;
@@ -0,0 +1,59 @@
+package org.example.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Jackson converter for binary data formats (Smile, CBOR). Type information is
+ * carried in the same headers as {@code Jackson2JsonMessageConverter} uses, but
+ * the body is always read and written as raw bytes, never through a String.
+ */
+public class BinaryJacksonMessageConverter extends AbstractMessageConverter {
+    private final ObjectMapper objectMapper;
+    private final String contentType;
+    private final DefaultJackson2JavaTypeMapper javaTypeMapper = new DefaultJackson2JavaTypeMapper();
+
+    public BinaryJacksonMessageConverter(ObjectMapper objectMapper, String contentType) {
+        this.objectMapper = objectMapper;
+        this.contentType = contentType;
+        javaTypeMapper.setTrustedPackages("*");
+        javaTypeMapper.setTypePrecedence(Jackson2JavaTypeMapper.TypePrecedence.INFERRED);
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        return createMessage(object, messageProperties, null);
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties, Type genericType) {
+        try {
+            var body = objectMapper.writeValueAsBytes(object);
+            messageProperties.setContentType(contentType);
+            messageProperties.setContentLength(body.length);
+            javaTypeMapper.fromJavaType(objectMapper.constructType(genericType != null ? genericType : object.getClass()),
+                    messageProperties);
+            return new Message(body, messageProperties);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to encode " + object.getClass().getName() + " as " + contentType, e);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        var properties = message.getMessageProperties();
+        try {
+            return objectMapper.readValue(message.getBody(), javaTypeMapper.toJavaType(properties));
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to decode " + contentType + " message", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.converter;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.postprocessor.DelegatingDecompressingPostProcessor;
+import org.springframework.amqp.support.postprocessor.GZipPostProcessor;
+
+/**
+ * Gzips bodies of at least {@code threshold} bytes after encoding and inflates
+ * any compressed message before decoding. Compression is marked in the
+ * content encoding ({@code gzip:UTF-8}), the content type is left as is.
+ */
+public class CompressingMessageConverter implements MessageConverter {
+    private final MessageConverter delegate;
+    private final int threshold;
+    private final GZipPostProcessor compressor = new GZipPostProcessor();
+    private final DelegatingDecompressingPostProcessor decompressor = new DelegatingDecompressingPostProcessor();
+
+    public CompressingMessageConverter(MessageConverter delegate, int threshold) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) throws MessageConversionException {
+        var message = delegate.toMessage(object, messageProperties);
+        if (threshold <= 0 || message.getBody().length < threshold) {
+            return message;
+        }
+        try {
+            return compressor.postProcessMessage(message);
+        } catch (AmqpException e) {
+            throw new MessageConversionException("Failed to compress message", e);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        try {
+            return delegate.fromMessage(decompressor.postProcessMessage(message));
+        } catch (AmqpException e) {
+            throw new MessageConversionException("Failed to decompress message", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.converter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Wire formats understood on the inter-service queues. All of them carry the same
+ * Jackson data model, only the encoding of the body differs.
+ */
+public enum MessageCodec {
+    JSON(MessageProperties.CONTENT_TYPE_JSON, ObjectMapper::new),
+    SMILE("application/x-jackson-smile", SmileMapper::new),
+    CBOR("application/cbor", CBORMapper::new);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String contentType;
+    private final Supplier<ObjectMapper> mapperFactory;
+    private final JsonFactory factory;
+
+    MessageCodec(String contentType, Supplier<ObjectMapper> mapperFactory) {
+        this.contentType = contentType;
+        this.mapperFactory = mapperFactory;
+        this.factory = mapperFactory.get().getFactory();
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Re-encodes a JSON document in this format token by token, without binding it
+     * to a type; JSON is returned as is.
+     */
+    public byte[] transcodeJson(byte[] json) throws IOException {
+        if (this == JSON) {
+            return json;
+        }
+        var out = new ByteArrayOutputStream(json.length);
+        try (var parser = JSON_FACTORY.createParser(json);
+             var generator = factory.createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+        return out.toByteArray();
+    }
+
+    public MessageConverter createConverter() {
+        var mapper = mapperFactory.get()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        if (this == JSON) {
+            return new Jackson2JsonMessageConverter(mapper);
+        }
+        return new BinaryJacksonMessageConverter(mapper, contentType);
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.converter;
+
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+public final class MessageConverters {
+
+    private MessageConverters() {
+    }
+
+    /**
+     * Converter that writes {@code outbound} and reads every {@link MessageCodec}
+     * by the incoming content type, so producers can switch codec once all
+     * consumers run a version that understands it. {@link RawJson} payloads are
+     * re-encoded with {@code outbound} and compressed like any other.
+     *
+     * @param compressionThreshold body size from which messages are gzipped, 0 disables compression
+     */
+    public static MessageConverter negotiating(MessageCodec outbound, int compressionThreshold) {
+        var converter = new ContentTypeDelegatingMessageConverter(outbound.createConverter());
+        for (var codec : MessageCodec.values()) {
+            converter.addDelegate(codec.getContentType(), codec.createConverter());
+        }
+        return new CompressingMessageConverter(new RawJsonMessageConverter(outbound, converter), compressionThreshold);
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.converter;
+
+/**
+ * A JSON document that is published without being bound to its type first, e.g.
+ * a webhook body as received. The negotiating converter re-encodes it with the
+ * outbound codec, so consumers read it as an instance of {@code type}.
+ */
+public record RawJson(byte[] body, Class<?> type) {
+}
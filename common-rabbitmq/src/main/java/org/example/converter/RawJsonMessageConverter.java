@@ -0,0 +1,50 @@
+package org.example.converter;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link RawJson} payloads in the {@code outbound} codec by streaming the
+ * JSON tokens into it, without binding the document to its type. Type headers are
+ * set as the Jackson converters set them. Everything else goes to the delegate.
+ */
+public class RawJsonMessageConverter implements MessageConverter {
+    private final MessageCodec outbound;
+    private final MessageConverter delegate;
+    private final DefaultJackson2JavaTypeMapper javaTypeMapper = new DefaultJackson2JavaTypeMapper();
+
+    public RawJsonMessageConverter(MessageCodec outbound, MessageConverter delegate) {
+        this.outbound = outbound;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) throws MessageConversionException {
+        if (!(object instanceof RawJson rawJson)) {
+            return delegate.toMessage(object, messageProperties);
+        }
+        try {
+            var body = outbound.transcodeJson(rawJson.body());
+            messageProperties.setContentType(outbound.getContentType());
+            if (outbound == MessageCodec.JSON) {
+                messageProperties.setContentEncoding("UTF-8");
+            }
+            messageProperties.setContentLength(body.length);
+            javaTypeMapper.fromClass(rawJson.type(), messageProperties);
+            return new Message(body, messageProperties);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to encode raw " + rawJson.type().getName()
+                    + " as " + outbound.getContentType(), e);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        return delegate.fromMessage(message);
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.model;
+
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+
+import static org.example.model.RabbitQueue.MAIL_ACTIVATION;
+import static org.example.model.RabbitQueue.MAIL_ACTIVATION_DEAD_LETTER;
+
+/**
+ * Declared by the node, which publishes mail jobs, and by mail-service, which
+ * consumes them. Queue arguments must match on every declaration, so both use
+ * these definitions.
+ */
+public final class MailQueues {
+    private MailQueues() {
+    }
+
+    /**
+     * Rejected messages are routed through the default exchange to the dead-letter queue.
+     */
+    public static Queue activationQueue() {
+        return QueueBuilder.durable(MAIL_ACTIVATION)
+                .deadLetterExchange("")
+                .deadLetterRoutingKey(MAIL_ACTIVATION_DEAD_LETTER)
+                .build();
+    }
+
+    public static Queue activationDeadLetterQueue() {
+        return QueueBuilder.durable(MAIL_ACTIVATION_DEAD_LETTER).build();
+    }
+}
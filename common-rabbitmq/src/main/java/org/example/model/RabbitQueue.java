@@ -4,6 +4,15 @@ public class RabbitQueue {
     public static final String DOC_MESSAGE_UPDATE = "doc message update";
     public static final String PHOTO_MESSAGE_UPDATE = "photo message update";
     public static final String TEXT_MESSAGE_UPDATE = "text message update";
+    // updates the node failed to process for good
+    public static final String DOC_MESSAGE_UPDATE_DEAD_LETTER = "doc message update dead letter";
+    public static final String PHOTO_MESSAGE_UPDATE_DEAD_LETTER = "photo message update dead letter";
+    public static final String TEXT_MESSAGE_UPDATE_DEAD_LETTER = "text message update dead letter";
     public static final String ANSWER_MESSAGE = "answer message";
+    // fanout exchange: every node instance binds its own queue to drop cached users
+    public static final String APP_USER_CACHE_EVICTION = "app user cache eviction";
+    public static final String MAIL_ACTIVATION = "mail activation";
+    // activation mails that failed every delivery attempt
+    public static final String MAIL_ACTIVATION_DEAD_LETTER = "mail activation dead letter";
 
 }
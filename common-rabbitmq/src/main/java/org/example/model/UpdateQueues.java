@@ -0,0 +1,51 @@
+package org.example.model;
+
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+
+import static org.example.model.RabbitQueue.*;
+
+/**
+ * Declared by the dispatcher, which publishes updates, and by the node, which
+ * consumes them. Queue arguments must match on every declaration, so both use
+ * these definitions.
+ */
+public final class UpdateQueues {
+    private UpdateQueues() {
+    }
+
+    public static Queue textQueue() {
+        return withDeadLetter(TEXT_MESSAGE_UPDATE, TEXT_MESSAGE_UPDATE_DEAD_LETTER);
+    }
+
+    public static Queue docQueue() {
+        return withDeadLetter(DOC_MESSAGE_UPDATE, DOC_MESSAGE_UPDATE_DEAD_LETTER);
+    }
+
+    public static Queue photoQueue() {
+        return withDeadLetter(PHOTO_MESSAGE_UPDATE, PHOTO_MESSAGE_UPDATE_DEAD_LETTER);
+    }
+
+    public static Queue textDeadLetterQueue() {
+        return QueueBuilder.durable(TEXT_MESSAGE_UPDATE_DEAD_LETTER).build();
+    }
+
+    public static Queue docDeadLetterQueue() {
+        return QueueBuilder.durable(DOC_MESSAGE_UPDATE_DEAD_LETTER).build();
+    }
+
+    public static Queue photoDeadLetterQueue() {
+        return QueueBuilder.durable(PHOTO_MESSAGE_UPDATE_DEAD_LETTER).build();
+    }
+
+    /**
+     * Updates the node rejects are routed through the default exchange to the
+     * dead-letter queue, where they are kept for inspection and replay.
+     */
+    private static Queue withDeadLetter(String name, String deadLetterQueue) {
+        return QueueBuilder.durable(name)
+                .deadLetterExchange("")
+                .deadLetterRoutingKey(deadLetterQueue)
+                .build();
+    }
+}
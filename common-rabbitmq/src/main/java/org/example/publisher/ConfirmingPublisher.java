@@ -0,0 +1,292 @@
+package org.example.publisher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionListener;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous publisher with correlated publisher confirms.
+ * <p>
+ * Callers hand messages over and return; a single publisher thread takes up to
+ * {@code batchSize} of them at a time and sends them back to back on one channel,
+ * without waiting for confirms in between. At most {@code maxInFlight} messages are
+ * unconfirmed at a time. Nacked messages, and messages left unconfirmed when the
+ * connection is re-established or confirms stop arriving for {@code confirmTimeoutMs},
+ * are published again, so delivery is at-least-once. Messages are numbered as they
+ * are handed over and the outbox is ordered by that number, so republished messages
+ * go out again in their original order, ahead of messages handed over after them.
+ */
+@Log4j
+public class ConfirmingPublisher implements AutoCloseable {
+    private static final long RETRY_INTERVAL_MS = 1000;
+
+    private final CachingConnectionFactory connectionFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageConverter messageConverter;
+    private final AtomicLong sequence = new AtomicLong();
+    private final BlockingQueue<PendingPublish> outbox =
+            new PriorityBlockingQueue<>(64, Comparator.comparingLong(pending -> pending.sequence));
+    private final Map<String, PendingPublish> unconfirmed = new ConcurrentHashMap<>();
+    private final Semaphore capacity;
+    private final Semaphore inFlight;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long confirmTimeoutMs;
+    private final Timer confirmLatency;
+    private final Counter nacks;
+    private final Counter returned;
+    private final Counter dropped;
+    private final Counter confirmTimeouts;
+    private final Thread publisherThread;
+    private volatile boolean running = true;
+
+    public ConfirmingPublisher(CachingConnectionFactory connectionFactory,
+                               MessageConverter messageConverter,
+                               MeterRegistry meterRegistry,
+                               int capacity, int maxInFlight, int batchSize, int maxAttempts,
+                               long confirmTimeoutMs) {
+        connectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.CORRELATED);
+        connectionFactory.setPublisherReturns(true);
+        connectionFactory.addConnectionListener(new ConnectionListener() {
+            @Override
+            public void onCreate(Connection connection) {
+                republishUnconfirmed();
+            }
+        });
+        this.connectionFactory = connectionFactory;
+        this.messageConverter = messageConverter;
+        this.rabbitTemplate = new RabbitTemplate(connectionFactory);
+        this.rabbitTemplate.setMandatory(true);
+        this.rabbitTemplate.setConfirmCallback(this::onConfirm);
+        this.capacity = new Semaphore(capacity);
+        this.inFlight = new Semaphore(maxInFlight);
+        // a batch larger than the in-flight window could never be sent
+        this.batchSize = Math.min(batchSize, maxInFlight);
+        this.maxAttempts = maxAttempts;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+
+        Gauge.builder("rabbitmq.publisher.queued", outbox, BlockingQueue::size)
+                .register(meterRegistry);
+        Gauge.builder("rabbitmq.publisher.in_flight", unconfirmed, Map::size)
+                .register(meterRegistry);
+        this.confirmLatency = Timer.builder("rabbitmq.publisher.confirm.latency")
+                .description("Time from publishing a message until the broker confirmed it")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.nacks = meterRegistry.counter("rabbitmq.publisher.nacks");
+        this.returned = meterRegistry.counter("rabbitmq.publisher.returned");
+        this.dropped = meterRegistry.counter("rabbitmq.publisher.dropped");
+        this.confirmTimeouts = meterRegistry.counter("rabbitmq.publisher.confirm.timeouts");
+
+        this.publisherThread = new Thread(this::publishLoop, "rabbit-confirming-publisher");
+        this.publisherThread.setDaemon(true);
+        this.publisherThread.start();
+    }
+
+    public void convertAndPublish(String routingKey, Object payload) {
+        convertAndPublish("", routingKey, payload);
+    }
+
+    public void convertAndPublish(String exchange, String routingKey, Object payload) {
+        publish(exchange, routingKey, messageConverter.toMessage(payload, new MessageProperties()));
+    }
+
+    public void publish(String routingKey, Message message) {
+        publish("", routingKey, message);
+    }
+
+    /**
+     * Queues the message for publishing, blocking while the publisher already
+     * holds {@code capacity} queued or unconfirmed messages.
+     */
+    public void publish(String exchange, String routingKey, Message message) {
+        if (!running) {
+            throw new IllegalStateException("Publisher is closed");
+        }
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to publish to " + routingKey, e);
+        }
+        outbox.add(new PendingPublish(sequence.incrementAndGet(), exchange, routingKey, message));
+    }
+
+    private void publishLoop() {
+        var batch = new ArrayList<PendingPublish>(batchSize);
+        while (running || !outbox.isEmpty()) {
+            try {
+                var first = outbox.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.clear();
+                batch.add(first);
+                outbox.drainTo(batch, batchSize - 1);
+                if (!inFlight.tryAcquire(batch.size(), confirmTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    outbox.addAll(batch);
+                    recoverFromMissingConfirms();
+                    continue;
+                }
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.error("Unexpected publisher failure", e);
+            }
+        }
+    }
+
+    private void sendBatch(List<PendingPublish> batch) throws InterruptedException {
+        batch.forEach(pending -> pending.correlation = null);
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (var pending : batch) {
+                    var correlation = pending.nextAttempt();
+                    unconfirmed.put(correlation.getId(), pending);
+                    operations.send(pending.exchange, pending.routingKey, pending.message, correlation);
+                }
+                return null;
+            });
+        } catch (AmqpException e) {
+            log.warn("Publishing failed, retrying in " + RETRY_INTERVAL_MS + "ms: " + e.getMessage());
+            // messages already settled by a confirm or by recovery are not ours to requeue
+            for (var pending : batch) {
+                if (pending.correlation == null || unconfirmed.remove(pending.correlation.getId()) != null) {
+                    inFlight.release();
+                    outbox.add(pending);
+                }
+            }
+            Thread.sleep(RETRY_INTERVAL_MS);
+        }
+    }
+
+    private void onConfirm(CorrelationData correlation, boolean ack, String cause) {
+        if (correlation == null) {
+            return;
+        }
+        var pending = unconfirmed.remove(correlation.getId());
+        if (pending == null) {
+            // already handed back to the outbox by connection recovery
+            return;
+        }
+        inFlight.release();
+        if (correlation.getReturned() != null) {
+            returned.increment();
+            log.error("Message to " + pending.routingKey + " was unroutable: " + correlation.getReturned().getReplyText());
+            capacity.release();
+        } else if (ack) {
+            confirmLatency.record(System.nanoTime() - pending.sentAt, TimeUnit.NANOSECONDS);
+            capacity.release();
+        } else {
+            nacks.increment();
+            retry(pending, cause);
+        }
+    }
+
+    private void retry(PendingPublish pending, String cause) {
+        if (pending.attempts >= maxAttempts) {
+            dropped.increment();
+            log.error("Giving up on message to " + pending.routingKey + " after " + pending.attempts + " attempts: " + cause);
+            capacity.release();
+            return;
+        }
+        log.warn("Message to " + pending.routingKey + " was not confirmed (" + cause + "), publishing again");
+        outbox.add(pending);
+    }
+
+    private void republishUnconfirmed() {
+        var count = 0;
+        for (var id : List.copyOf(unconfirmed.keySet())) {
+            var pending = unconfirmed.remove(id);
+            if (pending != null) {
+                inFlight.release();
+                outbox.add(pending);
+                count++;
+            }
+        }
+        if (count > 0) {
+            log.warn("Connection re-established, publishing " + count + " unconfirmed messages again");
+        }
+    }
+
+    /**
+     * No confirm arrived for {@code confirmTimeoutMs} while the in-flight window was
+     * full. The channel is presumed dead even if no listener noticed, so the
+     * connection is reset and everything unconfirmed is published again.
+     */
+    private void recoverFromMissingConfirms() {
+        confirmTimeouts.increment();
+        log.warn("No publisher confirms for " + confirmTimeoutMs + "ms with " + unconfirmed.size()
+                + " messages in flight, resetting the connection");
+        connectionFactory.resetConnection();
+        republishUnconfirmed();
+    }
+
+    /**
+     * Stops accepting messages and waits up to 10 seconds for the outbox to be
+     * published and confirmed.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            publisherThread.join(TimeUnit.SECONDS.toMillis(10));
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!unconfirmed.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!outbox.isEmpty() || !unconfirmed.isEmpty()) {
+            log.warn("Publisher closed with " + outbox.size() + " queued and " + unconfirmed.size() + " unconfirmed messages");
+        }
+        publisherThread.interrupt();
+    }
+
+    private static class PendingPublish {
+        private final long sequence;
+        private final String exchange;
+        private final String routingKey;
+        private final Message message;
+        private CorrelationData correlation;
+        private int attempts;
+        private long sentAt;
+
+        private PendingPublish(long sequence, String exchange, String routingKey, Message message) {
+            this.sequence = sequence;
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.message = message;
+        }
+
+        private CorrelationData nextAttempt() {
+            attempts++;
+            sentAt = System.nanoTime();
+            correlation = new CorrelationData(UUID.randomUUID().toString());
+            return correlation;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Payload size and encode/decode cost of each codec against the plain
+ * Jackson2JsonMessageConverter. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class MessageCodecBenchmarkTest {
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    private static final String UPDATE_JSON = """
+            {"update_id":804120361,"message":{"message_id":5821,
+             "from":{"id":381924012,"is_bot":false,"first_name":"Ivan","last_name":"Petrov",
+                     "username":"ivan_petrov","language_code":"ru"},
+             "chat":{"id":381924012,"first_name":"Ivan","last_name":"Petrov",
+                     "username":"ivan_petrov","type":"private"},
+             "date":1697040000,
+             "document":{"file_name":"report-2023-10.pdf","mime_type":"application/pdf",
+                         "file_id":"BQACAgIAAxkBAAIWzWUmYk2sUq3v9wqV1m3k0aQm7XhUAAKxOQACNV-ISSvY3l9N2jgNMAQ",
+                         "file_unique_id":"AgADsTkAAjVfiEk","file_size":482113},
+             "caption":"Отчёт за октябрь"}}""";
+
+    @Test
+    public void compareCodecs() throws Exception {
+        var update = new ObjectMapper().readValue(UPDATE_JSON, Update.class);
+        var converters = new LinkedHashMap<String, MessageConverter>();
+        converters.put("jackson-json (current)", new Jackson2JsonMessageConverter());
+        for (var codec : MessageCodec.values()) {
+            converters.put(codec.name().toLowerCase(), MessageConverters.negotiating(codec, 0));
+            converters.put(codec.name().toLowerCase() + "+gzip", MessageConverters.negotiating(codec, 1));
+        }
+
+        System.out.printf("%-24s %10s %14s %14s%n", "codec", "bytes", "encode ns/op", "decode ns/op");
+        int jsonSize = 0;
+        for (var entry : converters.entrySet()) {
+            var converter = entry.getValue();
+            var message = converter.toMessage(update, new MessageProperties());
+            assertEquals(update, converter.fromMessage(copy(message)));
+
+            run(converter, update, message, WARMUP);
+            var encode = timeEncode(converter, update);
+            var decode = timeDecode(converter, message);
+            var size = message.getBody().length;
+            if (jsonSize == 0) {
+                jsonSize = size;
+            }
+            System.out.printf("%-24s %10d %14d %14d%n", entry.getKey(), size, encode, decode);
+        }
+        var smile = converters.get("smile").toMessage(update, new MessageProperties());
+        assertTrue(smile.getBody().length < jsonSize);
+    }
+
+    private void run(MessageConverter converter, Update update, Message message, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            converter.toMessage(update, new MessageProperties());
+            converter.fromMessage(copy(message));
+        }
+    }
+
+    private long timeEncode(MessageConverter converter, Update update) {
+        var start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            converter.toMessage(update, new MessageProperties());
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private long timeDecode(MessageConverter converter, Message message) {
+        var start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            converter.fromMessage(copy(message));
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    // the gzip post processors rewrite message properties in place
+    private static Message copy(Message message) {
+        var properties = new MessageProperties();
+        properties.setContentType(message.getMessageProperties().getContentType());
+        properties.setContentEncoding(message.getMessageProperties().getContentEncoding());
+        message.getMessageProperties().getHeaders().forEach(properties::setHeader);
+        return new Message(message.getBody(), properties);
+    }
+}
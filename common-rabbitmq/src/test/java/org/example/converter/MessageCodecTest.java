@@ -0,0 +1,68 @@
+package org.example.converter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCodecTest {
+
+    @Test
+    public void testEveryCodecIsReadableByNegotiatingConverter() {
+        var reader = MessageConverters.negotiating(MessageCodec.JSON, 0);
+        for (var codec : MessageCodec.values()) {
+            var writer = MessageConverters.negotiating(codec, 16);
+            var message = writer.toMessage(sendMessage(), new MessageProperties());
+            assertEquals(codec.getContentType(), message.getMessageProperties().getContentType());
+            assertTrue(message.getMessageProperties().getContentEncoding().startsWith("gzip"));
+
+            var decoded = (SendMessage) reader.fromMessage(message);
+            assertEquals(sendMessage(), decoded);
+        }
+    }
+
+    @Test
+    public void testLegacyJsonIsReadable() {
+        var legacy = new Jackson2JsonMessageConverter().toMessage(sendMessage(), new MessageProperties());
+        var reader = MessageConverters.negotiating(MessageCodec.SMILE, 1024);
+        assertEquals(sendMessage(), reader.fromMessage(legacy));
+    }
+
+    @Test
+    public void testSmallMessagesAreNotCompressed() {
+        var message = MessageConverters.negotiating(MessageCodec.CBOR, 1 << 20)
+                .toMessage(sendMessage(), new MessageProperties());
+        assertFalse(String.valueOf(message.getMessageProperties().getContentEncoding()).startsWith("gzip"));
+    }
+
+    @Test
+    public void testRawJsonIsWrittenWithOutboundCodec() {
+        var json = """
+                {"update_id":804120361,"message":{"message_id":5821,"date":1697040000,
+                 "chat":{"id":381924012,"type":"private"},"text":"Отчёт за октябрь"}}"""
+                .getBytes(StandardCharsets.UTF_8);
+        var reader = MessageConverters.negotiating(MessageCodec.JSON, 0);
+        for (var codec : MessageCodec.values()) {
+            var writer = MessageConverters.negotiating(codec, 16);
+            var message = writer.toMessage(new RawJson(json, Update.class), new MessageProperties());
+            assertEquals(codec.getContentType(), message.getMessageProperties().getContentType());
+            assertTrue(message.getMessageProperties().getContentEncoding().startsWith("gzip"));
+
+            var decoded = (Update) reader.fromMessage(message);
+            assertEquals(804120361, decoded.getUpdateId());
+            assertEquals("Отчёт за октябрь", decoded.getMessage().getText());
+        }
+    }
+
+    static SendMessage sendMessage() {
+        var sendMessage = new SendMessage();
+        sendMessage.setChatId("123456789");
+        sendMessage.setText("Файл получен! Обрабатывается...");
+        return sendMessage;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaneExecutorTest {
+
+    @Test
+    public void testTasksWithSameKeyRunInOrder() throws Exception {
+        try (var executor = new LaneExecutor("test", 4)) {
+            var executed = Collections.synchronizedList(new ArrayList<Integer>());
+            var futures = new ArrayList<CompletableFuture<Void>>();
+            for (int i = 0; i < 1000; i++) {
+                var value = i;
+                futures.add(executor.submit(42L, () -> executed.add(value)));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+            for (int i = 0; i < executed.size(); i++) {
+                assertEquals(i, executed.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testBlockedLaneDoesNotBlockOtherLanes() throws Exception {
+        try (var executor = new LaneExecutor("test", 2)) {
+            var slowKey = 1L;
+            var fastKey = List.of(2L, 3L, 4L).stream()
+                    .filter(key -> executor.laneOf(key) != executor.laneOf(slowKey))
+                    .findFirst().orElseThrow();
+            var release = new CountDownLatch(1);
+            executor.submit(slowKey, () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.submit(fastKey, () -> {}).get(5, TimeUnit.SECONDS);
+            release.countDown();
+        }
+    }
+}
@@ -1,8 +1,18 @@
 package org.example.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.converter.MessageCodec;
+import org.example.converter.MessageConverters;
+import org.example.model.UpdateQueues;
+import org.example.publisher.ConfirmingPublisher;
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Queue;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -11,21 +21,63 @@ import static org.example.model.RabbitQueue.*;
 @Configuration
 public class RabbitConfiguration {
     @Bean
-    public MessageConverter jsonMessageConverter(){
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter(@Value("${rabbitmq.codec:JSON}") MessageCodec codec,
+                                             @Value("${rabbitmq.compression_threshold:0}") int compressionThreshold){
+        return MessageConverters.negotiating(codec, compressionThreshold);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ConfirmingPublisher confirmingPublisher(CachingConnectionFactory connectionFactory,
+                                                   MessageConverter messageConverter,
+                                                   MeterRegistry meterRegistry,
+                                                   @Value("${rabbitmq.publisher.capacity:10000}") int capacity,
+                                                   @Value("${rabbitmq.publisher.max_in_flight:1000}") int maxInFlight,
+                                                   @Value("${rabbitmq.publisher.batch_size:50}") int batchSize,
+                                                   @Value("${rabbitmq.publisher.max_attempts:5}") int maxAttempts,
+                                                   @Value("${rabbitmq.publisher.confirm_timeout_ms:30000}") long confirmTimeoutMs){
+        return new ConfirmingPublisher(connectionFactory, messageConverter, meterRegistry,
+                capacity, maxInFlight, batchSize, maxAttempts, confirmTimeoutMs);
+    }
+
+    /**
+     * Answers are acknowledged once sent, so the prefetch bounds how many wait in the
+     * send scheduler; keep it below bot.send.max_pending so the listener never blocks.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory answerListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${bot.send.prefetch:1000}") int prefetch){
+        var factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(prefetch);
+        return factory;
     }
 
     @Bean
     public Queue textMessageQueue(){
-        return new Queue(TEXT_MESSAGE_UPDATE);
+        return UpdateQueues.textQueue();
     }
     @Bean
     public Queue docMessageQueue(){
-        return new Queue(DOC_MESSAGE_UPDATE);
+        return UpdateQueues.docQueue();
     }
     @Bean
     public Queue photoMessageQueue(){
-        return new Queue(PHOTO_MESSAGE_UPDATE);
+        return UpdateQueues.photoQueue();
+    }
+    @Bean
+    public Queue textMessageDeadLetterQueue(){
+        return UpdateQueues.textDeadLetterQueue();
+    }
+    @Bean
+    public Queue docMessageDeadLetterQueue(){
+        return UpdateQueues.docDeadLetterQueue();
+    }
+    @Bean
+    public Queue photoMessageDeadLetterQueue(){
+        return UpdateQueues.photoDeadLetterQueue();
     }
     @Bean
     public Queue answerMessageQueue(){
@@ -1,6 +1,7 @@
 package org.example.controller;
 
 import lombok.extern.log4j.Log4j;
+import org.example.service.SendScheduler;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
@@ -12,6 +13,7 @@ import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import javax.annotation.PostConstruct;
+import java.util.concurrent.CompletableFuture;
 
 
 @Component
@@ -24,13 +26,16 @@ public class TelegramBot extends TelegramWebhookBot {
     @Value("${bot.uri}")
     private String botUri;
     private UpdateProcessor updateProcessor;
+    private final SendScheduler sendScheduler;
 
-    public TelegramBot(UpdateProcessor updateProcessor){
+    public TelegramBot(UpdateProcessor updateProcessor, SendScheduler sendScheduler){
         this.updateProcessor = updateProcessor;
+        this.sendScheduler = sendScheduler;
     }
     @PostConstruct
     public void init(){
         updateProcessor.registerBot(this);
+        sendScheduler.registerSender(this);
         try{
             var setWebhook = SetWebhook.builder()
                     .url(botUri)
@@ -54,14 +59,8 @@ public class TelegramBot extends TelegramWebhookBot {
     public String getBotPath() {
         return "/update";
     }
-    public void sendAnswerMessage(SendMessage message){
-        if(message !=null){
-            try{
-                execute(message);
-            }catch(TelegramApiException e){
-                log.error(e.getMessage());
-            }
-        }
+    public CompletableFuture<Void> sendAnswerMessage(SendMessage message){
+        return sendScheduler.schedule(message);
     }
 
     @Override
@@ -4,9 +4,11 @@ package org.example.controller;
 import lombok.extern.log4j.Log4j;
 import org.example.service.UpdateProducer;
 import org.example.utils.MessageUtils;
+import org.example.utils.RawUpdate;
 import org.springframework.stereotype.Controller;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.concurrent.CompletableFuture;
 
 import static org.example.model.RabbitQueue.*;
 
@@ -25,7 +27,7 @@ public class UpdateProcessor {
     public void registerBot(TelegramBot telegramBot){
         this.telegramBot = telegramBot;
     }
-    public void processUpdate(Update update){
+    public void processUpdate(RawUpdate update){
         if(update==null){
             log.error("Received update is null");
             return;
@@ -33,53 +35,49 @@ public class UpdateProcessor {
         if(update.hasMessage()){
             distributeMessageByType(update);
         }else{
-            log.error("Unsupported message type is received: "+update);
+            log.error("Unsupported message type is received: "+update.updateId());
         }
     }
 
-    private void distributeMessageByType(Update update) {
-        var message = update.getMessage();
-        if(message.hasText()){
-            processTextMessage(update);
-        }else if(message.hasDocument()){
-            processDocMessage(update);
-        }else if(message.hasPhoto()){
-            processPhotoMessage(update);
-        }else{
-            setUnsupportedMessageTypeView(update);
+    private void distributeMessageByType(RawUpdate update) {
+        switch (update.messageType()) {
+            case TEXT -> processTextMessage(update);
+            case DOCUMENT -> processDocMessage(update);
+            case PHOTO -> processPhotoMessage(update);
+            default -> setUnsupportedMessageTypeView(update);
         }
     }
 
-    private void setUnsupportedMessageTypeView(Update update) {
+    private void setUnsupportedMessageTypeView(RawUpdate update) {
             var sendMessage = messageUtils.generateSendMessageWithText(
-                    update,"Неподдерживаемый тип сообщения!");
+                    update.chatId(),"Неподдерживаемый тип сообщения!");
             setView(sendMessage);
     }
 
-    private void setFileIsReceivedView(Update update) {
+    private void setFileIsReceivedView(RawUpdate update) {
         var sendMessage = messageUtils.generateSendMessageWithText(
-                update,"Файл получен! Обрабатывается...");
+                update.chatId(),"Файл получен! Обрабатывается...");
         setView(sendMessage);
     }
 
-    public void setView(SendMessage sendMessage) {
-        telegramBot.sendAnswerMessage(sendMessage);
+    public CompletableFuture<Void> setView(SendMessage sendMessage) {
+        return telegramBot.sendAnswerMessage(sendMessage);
     }
 
-    private void processPhotoMessage(Update update) {
+    private void processPhotoMessage(RawUpdate update) {
         updateProducer.produce(PHOTO_MESSAGE_UPDATE,update);
         setFileIsReceivedView(update);
     }
 
 
 
-    private void processDocMessage(Update update) {
+    private void processDocMessage(RawUpdate update) {
         updateProducer.produce(DOC_MESSAGE_UPDATE,update);
         setFileIsReceivedView(update);
 
     }
 
-    private void processTextMessage(Update update) {
+    private void processTextMessage(RawUpdate update) {
             updateProducer.produce(TEXT_MESSAGE_UPDATE,update);
     }
 }
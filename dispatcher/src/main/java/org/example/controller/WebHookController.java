@@ -1,21 +1,36 @@
 package org.example.controller;
 
+import lombok.extern.log4j.Log4j;
+import org.example.service.UpdateStage;
+import org.example.utils.RawUpdateParser;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
 
 @RestController
+@Log4j
 public class WebHookController {
-    private final UpdateProcessor updateProcessor;
+    private final UpdateStage updateStage;
+    private final RawUpdateParser rawUpdateParser;
 
 
-    public WebHookController(UpdateProcessor updateProcessor) {
-        this.updateProcessor = updateProcessor;
+    public WebHookController(UpdateStage updateStage, RawUpdateParser rawUpdateParser) {
+        this.updateStage = updateStage;
+        this.rawUpdateParser = rawUpdateParser;
     }
 
     @RequestMapping(value = "/callback/update", method = RequestMethod.POST)
-    public ResponseEntity<?>onUpdateReceived(@RequestBody Update update){
-        updateProcessor.processUpdate(update);
+    public ResponseEntity<?>onUpdateReceived(@RequestBody byte[] body){
+        try{
+            if(!updateStage.submit(rawUpdateParser.parse(body))){
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+        }catch(IOException e){
+            log.error("Malformed update received: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
         return ResponseEntity.ok().build();
     }
 }
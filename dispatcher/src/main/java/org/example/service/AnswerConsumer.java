@@ -1,7 +1,8 @@
 package org.example.service;
 
+import com.rabbitmq.client.Channel;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 
 public interface AnswerConsumer {
-    void consumer(SendMessage sendMessage);
+    void consumer(SendMessage sendMessage, Channel channel, long deliveryTag);
 }
@@ -0,0 +1,11 @@
+package org.example.service;
+
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface SendScheduler {
+    void registerSender(AbsSender sender);
+    CompletableFuture<Void> schedule(SendMessage message);
+}
@@ -1,7 +1,7 @@
 package org.example.service;
 
-import org.telegram.telegrambots.meta.api.objects.Update;
+import org.example.utils.RawUpdate;
 
 public interface UpdateProducer {
-    void produce(String rabbitQueue, Update update);
+    void produce(String rabbitQueue, RawUpdate update);
 }
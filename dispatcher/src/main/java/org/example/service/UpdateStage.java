@@ -0,0 +1,10 @@
+package org.example.service;
+
+import org.example.utils.RawUpdate;
+
+public interface UpdateStage {
+    /**
+     * @return false when the update was not accepted and Telegram should redeliver it
+     */
+    boolean submit(RawUpdate update);
+}
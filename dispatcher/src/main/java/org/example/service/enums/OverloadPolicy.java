@@ -0,0 +1,10 @@
+package org.example.service.enums;
+
+public enum OverloadPolicy {
+    /** Answer 503 so Telegram redelivers the update later. */
+    REJECT,
+    /** Acknowledge and discard the update. */
+    DROP,
+    /** Wait up to the offer timeout for a free slot, then reject. */
+    BLOCK
+}
@@ -1,14 +1,21 @@
 package org.example.service.impl;
 
+import com.rabbitmq.client.Channel;
+import lombok.extern.log4j.Log4j;
 import org.example.controller.UpdateProcessor;
 import org.example.service.AnswerConsumer;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 
+import java.io.IOException;
+
 import static org.example.model.RabbitQueue.ANSWER_MESSAGE;
 
 @Service
+@Log4j
 public class AnswerConsumerImpl implements AnswerConsumer {
     private final UpdateProcessor updateProcessor;
 
@@ -16,9 +23,24 @@ public class AnswerConsumerImpl implements AnswerConsumer {
         this.updateProcessor = updateProcessor;
     }
 
+    /**
+     * The answer is acknowledged once Telegram accepted it, or rejected once the
+     * scheduler gave up on it; until then the prefetch holds back further answers.
+     */
     @Override
-    @RabbitListener(queues = ANSWER_MESSAGE)
-    public void consumer(SendMessage sendMessage) {
-        updateProcessor.setView(sendMessage);
+    @RabbitListener(queues = ANSWER_MESSAGE, containerFactory = "answerListenerContainerFactory")
+    public void consumer(SendMessage sendMessage, Channel channel,
+                         @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        updateProcessor.setView(sendMessage).whenComplete((ignored, error) -> {
+            try {
+                if (error == null) {
+                    channel.basicAck(deliveryTag, false);
+                } else {
+                    channel.basicNack(deliveryTag, false, false);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to acknowledge answer " + deliveryTag + ", it will be redelivered", e);
+            }
+        });
     }
 }
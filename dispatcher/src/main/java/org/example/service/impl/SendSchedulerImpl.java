@@ -0,0 +1,286 @@
+package org.example.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j;
+import org.example.service.SendScheduler;
+import org.example.utils.TokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends answers off the RabbitMQ listener thread while keeping under Telegram's
+ * limits: a global bucket for the bot and one bucket per chat. Each chat has its
+ * own FIFO queue with at most one message in flight, so answers stay in order.
+ * <p>
+ * Nothing is dropped for lack of room: once max_pending answers are waiting,
+ * {@link #schedule} blocks the caller. The returned future completes once Telegram
+ * accepted the answer, so consumers acknowledge it only then; answers still
+ * pending at shutdown are redelivered.
+ */
+@Service
+@Log4j
+public class SendSchedulerImpl implements SendScheduler {
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final Map<String, ChatQueue> chats = new ConcurrentHashMap<>();
+    private final DelayQueue<ChatQueue> readyChats = new DelayQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Semaphore capacity;
+    private final TokenBucket globalBucket;
+    private final double chatRate;
+    private final int workerCount;
+    private final int maxAttempts;
+    private final Timer sendLatency;
+    private final Counter rateLimited;
+    private final Counter dropped;
+    private volatile AbsSender sender;
+    private volatile boolean running = true;
+    private ThreadPoolExecutor workers;
+    private Thread dispatcherThread;
+
+    public SendSchedulerImpl(MeterRegistry meterRegistry,
+                             @Value("${bot.send.global_rate:30}") double globalRate,
+                             @Value("${bot.send.chat_rate:1}") double chatRate,
+                             @Value("${bot.send.workers:8}") int workerCount,
+                             @Value("${bot.send.max_pending:10000}") int maxPending,
+                             @Value("${bot.send.max_attempts:5}") int maxAttempts) {
+        this.globalBucket = new TokenBucket(globalRate, globalRate);
+        this.chatRate = chatRate;
+        this.workerCount = workerCount;
+        this.capacity = new Semaphore(maxPending);
+        this.maxAttempts = maxAttempts;
+        Gauge.builder("telegram.send.queue.depth", pending, AtomicInteger::get)
+                .description("Answers waiting to be sent to Telegram")
+                .register(meterRegistry);
+        Gauge.builder("telegram.send.chats.ready", readyChats, DelayQueue::size)
+                .register(meterRegistry);
+        this.sendLatency = Timer.builder("telegram.send.latency")
+                .description("Time from scheduling an answer until Telegram accepted it")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rateLimited = meterRegistry.counter("telegram.send.rate_limited");
+        this.dropped = meterRegistry.counter("telegram.send.dropped");
+    }
+
+    @PostConstruct
+    public void start() {
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workerCount), daemonThreads("telegram-sender-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        dispatcherThread = daemonThreads("telegram-send-scheduler").newThread(this::dispatch);
+        dispatcherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        dispatcherThread.interrupt();
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+        if (pending.get() > 0) {
+            log.warn("Shutting down with " + pending.get() + " unsent answers, "
+                    + "those consumed from the answer queue are redelivered");
+        }
+    }
+
+    @Override
+    public void registerSender(AbsSender sender) {
+        this.sender = sender;
+    }
+
+    @Override
+    public CompletableFuture<Void> schedule(SendMessage message) {
+        if (message == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        pending.incrementAndGet();
+        var task = new PendingSend(message, System.nanoTime());
+        chats.compute(message.getChatId(), (chatId, chat) -> {
+            if (chat == null) {
+                chat = new ChatQueue(chatId, new TokenBucket(1, chatRate));
+            }
+            synchronized (chat) {
+                chat.messages.addLast(task);
+                if (!chat.active) {
+                    chat.active = true;
+                    chat.readyAt = System.nanoTime();
+                    readyChats.put(chat);
+                }
+            }
+            return chat;
+        });
+        return task.result;
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                var chat = readyChats.take();
+                var chatWait = chat.bucket.tryConsume();
+                if (chatWait > 0) {
+                    requeue(chat, chatWait);
+                    continue;
+                }
+                long globalWait;
+                while ((globalWait = globalBucket.tryConsume()) > 0) {
+                    LockSupport.parkNanos(globalWait);
+                }
+                workers.execute(() -> send(chat));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Send scheduler failure", e);
+            }
+        }
+    }
+
+    private void send(ChatQueue chat) {
+        PendingSend task;
+        synchronized (chat) {
+            task = chat.messages.peekFirst();
+        }
+        try {
+            sender.execute(task.message);
+            sendLatency.record(System.nanoTime() - task.enqueuedAt, TimeUnit.NANOSECONDS);
+            complete(chat, null);
+        } catch (TelegramApiRequestException e) {
+            var retryAfter = retryAfterSeconds(e);
+            if (retryAfter != null && ++task.attempts < maxAttempts) {
+                rateLimited.increment();
+                log.warn("Telegram rate limit hit for chat " + chat.chatId + ", retrying in " + retryAfter + "s");
+                var delay = TimeUnit.SECONDS.toNanos(retryAfter);
+                // retry_after may be for the whole bot rather than this chat, hold back every chat
+                globalBucket.pauseFor(delay);
+                chat.bucket.pauseFor(delay);
+                requeue(chat, delay);
+            } else {
+                fail(chat, e);
+            }
+        } catch (TelegramApiException | RuntimeException e) {
+            fail(chat, e);
+        }
+    }
+
+    private Integer retryAfterSeconds(TelegramApiRequestException e) {
+        if (e.getErrorCode() == null || e.getErrorCode() != TOO_MANY_REQUESTS) {
+            return null;
+        }
+        var parameters = e.getParameters();
+        if (parameters == null || parameters.getRetryAfter() == null) {
+            return 1;
+        }
+        return parameters.getRetryAfter();
+    }
+
+    private void fail(ChatQueue chat, Exception e) {
+        dropped.increment();
+        log.error("Failed to send answer to chat " + chat.chatId + ": " + e.getMessage());
+        complete(chat, e);
+    }
+
+    private void complete(ChatQueue chat, Exception error) {
+        PendingSend task;
+        synchronized (chat) {
+            task = chat.messages.pollFirst();
+            if (chat.messages.isEmpty()) {
+                chat.active = false;
+            } else {
+                chat.readyAt = System.nanoTime();
+                readyChats.put(chat);
+            }
+        }
+        pending.decrementAndGet();
+        capacity.release();
+        if (error == null) {
+            task.result.complete(null);
+        } else {
+            task.result.completeExceptionally(error);
+        }
+    }
+
+    private void requeue(ChatQueue chat, long delayNanos) {
+        synchronized (chat) {
+            chat.readyAt = System.nanoTime() + delayNanos;
+            readyChats.put(chat);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bot.send.idle_chat_sweep_ms:60000}")
+    public void evictIdleChats() {
+        chats.forEach((chatId, chat) -> chats.computeIfPresent(chatId, (id, current) -> {
+            synchronized (current) {
+                return !current.active && current.bucket.isFull() ? null : current;
+            }
+        }));
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        var counter = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, prefix.endsWith("-") ? prefix + counter.incrementAndGet() : prefix);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class PendingSend {
+        private final SendMessage message;
+        private final long enqueuedAt;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private int attempts;
+
+        private PendingSend(SendMessage message, long enqueuedAt) {
+            this.message = message;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private static class ChatQueue implements Delayed {
+        private final String chatId;
+        private final TokenBucket bucket;
+        private final Deque<PendingSend> messages = new ArrayDeque<>();
+        private boolean active;
+        private volatile long readyAt;
+
+        private ChatQueue(String chatId, TokenBucket bucket) {
+            this.chatId = chatId;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
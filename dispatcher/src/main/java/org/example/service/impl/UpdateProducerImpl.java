@@ -1,24 +1,30 @@
 package org.example.service.impl;
 
 import lombok.extern.log4j.Log4j;
+import org.example.converter.RawJson;
+import org.example.publisher.ConfirmingPublisher;
 import org.example.service.UpdateProducer;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.example.utils.RawUpdate;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
 @Service
 @Log4j
 public class UpdateProducerImpl implements UpdateProducer {
-    private final RabbitTemplate rabbitTemplate;
+    private final ConfirmingPublisher confirmingPublisher;
 
-    public UpdateProducerImpl(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public UpdateProducerImpl(ConfirmingPublisher confirmingPublisher) {
+        this.confirmingPublisher = confirmingPublisher;
     }
 
 
+    /**
+     * The webhook body is published without binding it to {@code Update}; the
+     * publisher's converter re-encodes it with the configured codec and compression.
+     */
     @Override
-    public void produce(String rabbitQueue, Update update) {
-        log.debug(update.getMessage().getText());
-        rabbitTemplate.convertAndSend(rabbitQueue, update);
+    public void produce(String rabbitQueue, RawUpdate update) {
+        log.debug("Publishing update " + update.updateId() + " to " + rabbitQueue);
+        confirmingPublisher.convertAndPublish(rabbitQueue, new RawJson(update.body(), Update.class));
     }
 }
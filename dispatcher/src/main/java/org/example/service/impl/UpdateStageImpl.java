@@ -0,0 +1,160 @@
+package org.example.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j;
+import org.example.controller.UpdateProcessor;
+import org.example.service.UpdateStage;
+import org.example.service.enums.OverloadPolicy;
+import org.example.utils.RawUpdate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded hand-off between the webhook and the update processing. The webhook
+ * returns as soon as the update is queued; routing, publishing and replying
+ * happen on the stage workers.
+ * <p>
+ * The stage is split into single-threaded shards chosen by chat id, each with its
+ * own queue, so updates of one chat are published in the order they
+ * arrived while different chats are processed in parallel. A shard holds at most
+ * its share of the capacity, counted by its slots: an update takes a slot before
+ * it is queued and frees it once processed.
+ */
+@Service
+@Log4j
+public class UpdateStageImpl implements UpdateStage {
+    private final UpdateProcessor updateProcessor;
+    private final OverloadPolicy overloadPolicy;
+    private final long offerTimeoutMs;
+    private final ThreadPoolExecutor[] shards;
+    private final Semaphore[] slots;
+    private final Counter overloaded;
+
+    public UpdateStageImpl(UpdateProcessor updateProcessor,
+                           MeterRegistry meterRegistry,
+                           @Value("${bot.update_stage.workers:4}") int workerCount,
+                           @Value("${bot.update_stage.capacity:1000}") int capacity,
+                           @Value("${bot.update_stage.overload_policy:REJECT}") OverloadPolicy overloadPolicy,
+                           @Value("${bot.update_stage.offer_timeout_ms:200}") long offerTimeoutMs) {
+        this.updateProcessor = updateProcessor;
+        this.overloadPolicy = overloadPolicy;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shards = new ThreadPoolExecutor[workerCount];
+        this.slots = new Semaphore[workerCount];
+        var shardCapacity = Math.max(1, capacity / workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            var threadName = "update-stage-" + i;
+            shards[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        var thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            slots[i] = new Semaphore(shardCapacity);
+        }
+        Gauge.builder("telegram.update_stage.depth", shards, UpdateStageImpl::depth)
+                .description("Updates accepted by the webhook and waiting to be processed")
+                .register(meterRegistry);
+        this.overloaded = Counter.builder("telegram.update_stage.overloaded")
+                .tag("policy", overloadPolicy.name())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean submit(RawUpdate update) {
+        var shard = shardOf(update.chatId());
+        if (!slots[shard].tryAcquire()) {
+            overloaded.increment();
+            if (!awaitSlot(update, shard)) {
+                // a dropped update is answered as accepted
+                return overloadPolicy == OverloadPolicy.DROP;
+            }
+        }
+        try {
+            shards[shard].execute(() -> {
+                try {
+                    process(update);
+                } finally {
+                    slots[shard].release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            slots[shard].release();
+            log.warn("Update stage is shutting down, rejecting update " + update.updateId());
+            return false;
+        }
+    }
+
+    private boolean awaitSlot(RawUpdate update, int shard) {
+        switch (overloadPolicy) {
+            case DROP:
+                log.warn("Update stage is full, dropping update " + update.updateId());
+                return false;
+            case BLOCK:
+                try {
+                    if (slots[shard].tryAcquire(offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                log.warn("Update stage is still full after " + offerTimeoutMs + "ms, rejecting update " + update.updateId());
+                return false;
+            default:
+                log.warn("Update stage is full, rejecting update " + update.updateId());
+                return false;
+        }
+    }
+
+    private int shardOf(Long chatId) {
+        if (chatId == null) {
+            return 0;
+        }
+        var hash = chatId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    private static double depth(ThreadPoolExecutor[] shards) {
+        var depth = 0;
+        for (var shard : shards) {
+            depth += shard.getQueue().size();
+        }
+        return depth;
+    }
+
+    private void process(RawUpdate update) {
+        try {
+            updateProcessor.processUpdate(update);
+        } catch (RuntimeException e) {
+            log.error("Failed to process update " + update.updateId(), e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (var shard : shards) {
+            shard.shutdown();
+        }
+        var unprocessed = 0;
+        for (var shard : shards) {
+            if (!shard.awaitTermination(10, TimeUnit.SECONDS)) {
+                unprocessed += shard.shutdownNow().size();
+            }
+        }
+        if (unprocessed > 0) {
+            log.warn("Update stage stopped with " + unprocessed + " unprocessed updates");
+        }
+    }
+}
@@ -8,9 +8,12 @@ import org.telegram.telegrambots.meta.api.objects.Update;
 @Component
 public class MessageUtils {
     public static SendMessage generateSendMessageWithText(Update update, String text){
-        var message = update.getMessage();
+        return generateSendMessageWithText(update.getMessage().getChatId(), text);
+    }
+
+    public static SendMessage generateSendMessageWithText(Long chatId, String text){
         var sendMessage = new SendMessage();
-        sendMessage.setChatId(message.getChatId().toString());
+        sendMessage.setChatId(chatId.toString());
         sendMessage.setText(text);
         return sendMessage;
     }
@@ -0,0 +1,21 @@
+package org.example.utils;
+
+/**
+ * Webhook body as received from Telegram together with the few fields
+ * needed to route it. The body itself is never bound to {@code Update}.
+ */
+public record RawUpdate(Long updateId, Long chatId, MessageType messageType, byte[] body) {
+
+    public enum MessageType {
+        TEXT,
+        DOCUMENT,
+        PHOTO,
+        UNSUPPORTED,
+        /** The update carries no {@code message} (edited messages, callbacks, ...). */
+        NONE
+    }
+
+    public boolean hasMessage() {
+        return messageType != MessageType.NONE;
+    }
+}
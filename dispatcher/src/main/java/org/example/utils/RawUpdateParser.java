@@ -0,0 +1,115 @@
+package org.example.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+import static org.example.utils.RawUpdate.MessageType.*;
+
+/**
+ * Streams over the webhook JSON and picks out update_id, message.chat.id and
+ * the message type, skipping every other subtree without building objects.
+ */
+@Component
+public class RawUpdateParser {
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public RawUpdate parse(byte[] body) throws IOException {
+        try (var parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Update is not a JSON object");
+            }
+            Long updateId = null;
+            var routing = new MessageRouting();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var field = parser.getCurrentName();
+                var value = parser.nextToken();
+                if ("update_id".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                    updateId = parser.getLongValue();
+                } else if ("message".equals(field) && value == JsonToken.START_OBJECT) {
+                    readMessage(parser, routing);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new RawUpdate(updateId, routing.chatId, routing.type(), body);
+        }
+    }
+
+    private void readMessage(JsonParser parser, MessageRouting routing) throws IOException {
+        routing.present = true;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.getCurrentName();
+            var value = parser.nextToken();
+            switch (field) {
+                case "chat" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        routing.chatId = readChatId(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "text" -> routing.hasText = value == JsonToken.VALUE_STRING && parser.getTextLength() > 0;
+                case "document" -> {
+                    routing.hasDocument = value == JsonToken.START_OBJECT;
+                    parser.skipChildren();
+                }
+                case "photo" -> routing.hasPhoto = value == JsonToken.START_ARRAY && skipArray(parser);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Skips the rest of the array the parser is positioned on.
+     *
+     * @return whether the array had any elements
+     */
+    private boolean skipArray(JsonParser parser) throws IOException {
+        var empty = true;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            empty = false;
+            parser.skipChildren();
+        }
+        return !empty;
+    }
+
+    private Long readChatId(JsonParser parser) throws IOException {
+        Long chatId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.getCurrentName();
+            var value = parser.nextToken();
+            if ("id".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                chatId = parser.getLongValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return chatId;
+    }
+
+    private static class MessageRouting {
+        private boolean present;
+        private Long chatId;
+        private boolean hasText;
+        private boolean hasDocument;
+        private boolean hasPhoto;
+
+        // same precedence as Message.hasText/hasDocument/hasPhoto checks in UpdateProcessor
+        private RawUpdate.MessageType type() {
+            if (!present) {
+                return NONE;
+            } else if (hasText) {
+                return TEXT;
+            } else if (hasDocument) {
+                return DOCUMENT;
+            } else if (hasPhoto) {
+                return PHOTO;
+            }
+            return UNSUPPORTED;
+        }
+    }
+}
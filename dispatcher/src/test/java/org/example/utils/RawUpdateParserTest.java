@@ -0,0 +1,50 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.example.utils.RawUpdate.MessageType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RawUpdateParserTest {
+    private final RawUpdateParser parser = new RawUpdateParser();
+
+    @Test
+    public void testTextMessage() throws IOException {
+        var update = parse("""
+                {"update_id":10,"message":{"message_id":1,"from":{"id":7,"is_bot":false},
+                 "chat":{"id":-100123,"type":"private","title":{"nested":[1,2]}},
+                 "entities":[{"type":"bot_command"}],"text":"/start"}}""");
+        assertEquals(10L, update.updateId());
+        assertEquals(-100123L, update.chatId());
+        assertEquals(TEXT, update.messageType());
+    }
+
+    @Test
+    public void testDocumentTakesPrecedenceOverPhoto() throws IOException {
+        var update = parse("""
+                {"message":{"chat":{"id":5},"photo":[{"file_id":"a"},{"file_id":"b"}],
+                 "document":{"file_id":"c"}},"update_id":11}""");
+        assertEquals(11L, update.updateId());
+        assertEquals(DOCUMENT, update.messageType());
+    }
+
+    @Test
+    public void testPhotoAndUnsupported() throws IOException {
+        assertEquals(PHOTO, parse("{\"message\":{\"chat\":{\"id\":5},\"photo\":[{\"file_id\":\"a\"}]}}").messageType());
+        assertEquals(UNSUPPORTED, parse("{\"message\":{\"chat\":{\"id\":5},\"photo\":[],\"text\":\"\"}}").messageType());
+        assertEquals(NONE, parse("{\"update_id\":1,\"edited_message\":{\"chat\":{\"id\":5},\"text\":\"x\"}}").messageType());
+    }
+
+    @Test
+    public void testBodyIsPassedThrough() throws IOException {
+        var body = "{\"update_id\":1}".getBytes(StandardCharsets.UTF_8);
+        assertSame(body, parser.parse(body).body());
+    }
+
+    private RawUpdate parse(String json) throws IOException {
+        return parser.parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
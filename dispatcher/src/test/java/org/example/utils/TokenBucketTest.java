@@ -0,0 +1,38 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void testBurstThenRefill() {
+        var bucket = new TokenBucket(2, 1, clock::get);
+        assertEquals(0, bucket.tryConsume());
+        assertEquals(0, bucket.tryConsume());
+        var wait = bucket.tryConsume();
+        assertEquals(TimeUnit.SECONDS.toNanos(1), wait);
+
+        clock.addAndGet(wait);
+        assertEquals(0, bucket.tryConsume());
+        assertTrue(bucket.tryConsume() > 0);
+    }
+
+    @Test
+    public void testPauseForDelaysRefill() {
+        var bucket = new TokenBucket(1, 1, clock::get);
+        bucket.pauseFor(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(TimeUnit.SECONDS.toNanos(6), bucket.tryConsume());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertFalse(bucket.isFull());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(bucket.isFull());
+        assertEquals(0, bucket.tryConsume());
+    }
+}
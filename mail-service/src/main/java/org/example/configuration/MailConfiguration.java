@@ -0,0 +1,28 @@
+package org.example.configuration;
+
+import org.example.utils.SmtpConnectionPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+@Configuration
+public class MailConfiguration {
+    @Value("${service.mail.pool.max_connections:4}")
+    private int maxConnections;
+    @Value("${service.mail.pool.messages_per_connection:50}")
+    private int messagesPerConnection;
+    @Value("${service.mail.pool.messages_per_second:5}")
+    private double messagesPerSecond;
+    @Value("${service.mail.pool.idle_timeout_ms:60000}")
+    private long idleTimeoutMs;
+
+    /**
+     * Connections are opened with the spring.mail.* settings of the auto-configured sender.
+     */
+    @Bean(destroyMethod = "close")
+    public SmtpConnectionPool smtpConnectionPool(JavaMailSenderImpl mailSender) {
+        return new SmtpConnectionPool(mailSender, maxConnections, messagesPerConnection,
+                messagesPerSecond, idleTimeoutMs);
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.configuration;
+
+import org.example.converter.MessageCodec;
+import org.example.converter.MessageConverters;
+import org.example.model.MailQueues;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.retry.RejectAndDontRequeueRecoverer;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitConfiguration {
+    @Bean
+    public MessageConverter messageConverter(@Value("${rabbitmq.codec:JSON}") MessageCodec codec,
+                                             @Value("${rabbitmq.compression_threshold:0}") int compressionThreshold){
+        return MessageConverters.negotiating(codec, compressionThreshold);
+    }
+
+    @Bean
+    public Queue mailActivationQueue(){
+        return MailQueues.activationQueue();
+    }
+
+    @Bean
+    public Queue mailActivationDeadLetterQueue(){
+        return MailQueues.activationDeadLetterQueue();
+    }
+
+    /**
+     * A failed mail is retried on the consumer thread with exponential backoff and,
+     * once the attempts are used up, rejected into the dead-letter queue. Several
+     * consumers keep one backing-off mail from holding up the others.
+     * <p>
+     * Each consumer prefetches a burst of queued mails and sends them back to back over
+     * a pooled SMTP connection, so consumers should not outnumber
+     * service.mail.pool.max_connections.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory mailListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${service.mail.consumers:4}") int consumers,
+            @Value("${service.mail.prefetch:20}") int prefetch,
+            @Value("${service.mail.retry.max_attempts:5}") int maxAttempts,
+            @Value("${service.mail.retry.initial_interval_ms:1000}") long initialIntervalMs,
+            @Value("${service.mail.retry.multiplier:2.0}") double multiplier,
+            @Value("${service.mail.retry.max_interval_ms:60000}") long maxIntervalMs){
+        var factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(consumers);
+        factory.setMaxConcurrentConsumers(consumers);
+        factory.setPrefetchCount(prefetch);
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxAttempts(maxAttempts)
+                .backOffOptions(initialIntervalMs, multiplier, maxIntervalMs)
+                .recoverer(new RejectAndDontRequeueRecoverer())
+                .build());
+        return factory;
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.service;
+
+import org.example.dto.MailParams;
+
+public interface ConsumerService {
+    void consumeActivationMail(MailParams mailParams);
+}
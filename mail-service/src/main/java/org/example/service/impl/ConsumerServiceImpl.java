@@ -0,0 +1,27 @@
+package org.example.service.impl;
+
+import lombok.extern.log4j.Log4j;
+import org.example.dto.MailParams;
+import org.example.service.ConsumerService;
+import org.example.service.MailSenderService;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Service;
+
+import static org.example.model.RabbitQueue.MAIL_ACTIVATION;
+
+@Service
+@Log4j
+public class ConsumerServiceImpl implements ConsumerService {
+    private final MailSenderService mailSenderService;
+
+    public ConsumerServiceImpl(MailSenderService mailSenderService) {
+        this.mailSenderService = mailSenderService;
+    }
+
+    @Override
+    @RabbitListener(queues = MAIL_ACTIVATION, containerFactory = "mailListenerContainerFactory")
+    public void consumeActivationMail(MailParams mailParams) {
+        log.debug("MAIL: Activation mail is received");
+        mailSenderService.send(mailParams);
+    }
+}
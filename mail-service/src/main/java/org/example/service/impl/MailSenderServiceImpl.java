@@ -2,22 +2,26 @@ package org.example.service.impl;
 
 import org.example.dto.MailParams;
 import org.example.service.MailSenderService;
+import org.example.utils.SmtpConnectionPool;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
 
 @Service
 public class MailSenderServiceImpl implements MailSenderService {
-    private final JavaMailSender javaMailSender;
+    private final SmtpConnectionPool smtpConnectionPool;
     @Value("${spring.mail.username}")
     private String emailFrom;
     @Value("${service.activation.uri}")
     private String activationServiceUri;
 
-    public MailSenderServiceImpl(JavaMailSender javaMailSender) {
-        this.javaMailSender = javaMailSender;
+    public MailSenderServiceImpl(SmtpConnectionPool smtpConnectionPool) {
+        this.smtpConnectionPool = smtpConnectionPool;
     }
 
     @Override
@@ -26,12 +30,17 @@ public class MailSenderServiceImpl implements MailSenderService {
         var messageBody = getActivationMailBody(mailParams.getId());
         var emailTo = mailParams.getEmailTo();
 
-        SimpleMailMessage mailMessage = new SimpleMailMessage();
-        mailMessage.setFrom(emailFrom);
-        mailMessage.setTo(emailTo);
-        mailMessage.setSubject(subject);
-        mailMessage.setText(messageBody);
-        javaMailSender.send(mailMessage);
+        try {
+            var mailMessage = new MimeMessage(smtpConnectionPool.getSession());
+            var helper = new MimeMessageHelper(mailMessage, "UTF-8");
+            helper.setFrom(emailFrom);
+            helper.setTo(emailTo);
+            helper.setSubject(subject);
+            helper.setText(messageBody);
+            smtpConnectionPool.send(mailMessage);
+        } catch (MessagingException e) {
+            throw new MailSendException("Failed to send activation mail to " + emailTo, e);
+        }
     }
 
     private String getActivationMailBody(String id) {
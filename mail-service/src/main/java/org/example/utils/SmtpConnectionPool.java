@@ -0,0 +1,175 @@
+package org.example.utils;
+
+import lombok.extern.log4j.Log4j;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.Date;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps up to {@code maxConnections} connected and authenticated SMTP transports,
+ * configured like the given {@link JavaMailSenderImpl}, and sends every message over
+ * one of them. A connection is reused for up to {@code maxMessagesPerConnection}
+ * messages, so the TCP/TLS handshake and the login are paid once per connection
+ * instead of once per message.
+ * <p>
+ * Each connection sends at most {@code messagesPerSecond} messages (0 means no limit),
+ * callers wait for the next slot. Connections left idle longer than {@code idleTimeoutMs}
+ * are closed rather than reused, since servers drop them on their side; a reused
+ * connection that fails anyway is replaced by a fresh one for that message.
+ */
+@Log4j
+public class SmtpConnectionPool implements AutoCloseable {
+    private final JavaMailSenderImpl mailSender;
+    private final BlockingQueue<PooledConnection> idle;
+    private final Semaphore permits;
+    private final int maxMessagesPerConnection;
+    private final long sendIntervalNanos;
+    private final long idleTimeoutNanos;
+    private volatile boolean closed;
+
+    public SmtpConnectionPool(JavaMailSenderImpl mailSender, int maxConnections, int maxMessagesPerConnection,
+                              double messagesPerSecond, long idleTimeoutMs) {
+        if (maxConnections <= 0 || maxMessagesPerConnection <= 0 || messagesPerSecond < 0) {
+            throw new IllegalArgumentException("Connection limits must be positive");
+        }
+        this.mailSender = mailSender;
+        this.idle = new LinkedBlockingQueue<>(maxConnections);
+        this.permits = new Semaphore(maxConnections, true);
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.sendIntervalNanos = messagesPerSecond == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / messagesPerSecond);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+    }
+
+    public Session getSession() {
+        return mailSender.getSession();
+    }
+
+    public void send(MimeMessage message) throws MessagingException {
+        if (closed) {
+            throw new IllegalStateException("SMTP connection pool is closed");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+        PooledConnection connection = null;
+        try {
+            connection = borrow();
+            try {
+                connection.send(message);
+            } catch (MessagingException e) {
+                // rejected recipients would be rejected on any connection
+                if (e instanceof SendFailedException || connection.sent == 0) {
+                    throw e;
+                }
+                // a reused connection may have been dropped by the server, try a fresh one once
+                log.debug("Reused SMTP connection failed, reconnecting: " + e.getMessage());
+                connection.close();
+                connection = connect();
+                connection.send(message);
+            }
+        } catch (MessagingException | RuntimeException e) {
+            if (connection != null) {
+                connection.close();
+                connection = null;
+            }
+            throw e;
+        } finally {
+            giveBack(connection);
+            permits.release();
+        }
+    }
+
+    private PooledConnection borrow() throws MessagingException {
+        PooledConnection connection;
+        while ((connection = idle.poll()) != null) {
+            if (System.nanoTime() - connection.lastUsedAt < idleTimeoutNanos) {
+                return connection;
+            }
+            connection.close();
+        }
+        return connect();
+    }
+
+    private void giveBack(PooledConnection connection) {
+        if (connection == null) {
+            return;
+        }
+        if (closed || connection.sent >= maxMessagesPerConnection || !idle.offer(connection)) {
+            connection.close();
+        }
+    }
+
+    private PooledConnection connect() throws MessagingException {
+        var transport = getSession().getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        return new PooledConnection(transport);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private class PooledConnection {
+        private final Transport transport;
+        private int sent;
+        private long nextSendAt = System.nanoTime();
+        private long lastUsedAt = System.nanoTime();
+
+        private PooledConnection(Transport transport) {
+            this.transport = transport;
+        }
+
+        private void send(MimeMessage message) throws MessagingException {
+            pace();
+            if (message.getSentDate() == null) {
+                message.setSentDate(new Date());
+            }
+            message.saveChanges();
+            transport.sendMessage(message, message.getAllRecipients());
+            sent++;
+            lastUsedAt = System.nanoTime();
+        }
+
+        private void pace() throws MessagingException {
+            if (sendIntervalNanos == 0) {
+                return;
+            }
+            var now = System.nanoTime();
+            var wait = nextSendAt - now;
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MessagingException("Interrupted while waiting for the send rate limit", e);
+                }
+            }
+            nextSendAt = Math.max(now, nextSendAt) + sendIntervalNanos;
+        }
+
+        private void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Failed to close SMTP connection: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.utils;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Activation mail throughput over SMTPS against a local GreenMail server: a new
+ * connection, TLS handshake and login per message (JavaMailSenderImpl.send) versus
+ * pooled connections. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class SmtpThroughputBenchmarkTest {
+    private static final int SENDERS = 4;
+    private static final int WARMUP = 20;
+    private static final int MESSAGES = 200;
+    private static final String USER = "bot@localhost";
+    private static final String PASSWORD = "secret";
+    private static final String RECIPIENT = "user@localhost";
+
+    private static GreenMail greenMail;
+    private static JavaMailSenderImpl mailSender;
+
+    @BeforeAll
+    static void startServer() {
+        greenMail = new GreenMail(ServerSetupTest.SMTPS.dynamicPort());
+        greenMail.start();
+        greenMail.setUser(USER, USER, PASSWORD);
+        greenMail.setUser(RECIPIENT, RECIPIENT, PASSWORD);
+
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(greenMail.getSmtps().getPort());
+        mailSender.setProtocol("smtps");
+        mailSender.setUsername(USER);
+        mailSender.setPassword(PASSWORD);
+        var properties = new Properties();
+        properties.setProperty("mail.smtps.auth", "true");
+        // GreenMail serves a self-signed certificate
+        properties.setProperty("mail.smtps.ssl.trust", "*");
+        mailSender.setJavaMailProperties(properties);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        if (greenMail != null) {
+            greenMail.stop();
+        }
+    }
+
+    @BeforeEach
+    void purge() throws Exception {
+        greenMail.purgeEmailFromAllMailboxes();
+    }
+
+    @Test
+    public void comparePooledAndPerMessageConnections() throws Exception {
+        sendPerMessage(WARMUP);
+        var perMessage = measure("connection per message", () -> sendPerMessage(MESSAGES));
+
+        try (var pool = new SmtpConnectionPool(mailSender, SENDERS, 100, 0, 60_000)) {
+            sendPooled(pool, WARMUP);
+            var pooled = measure("pooled connections", () -> sendPooled(pool, MESSAGES));
+            assertTrue(greenMail.waitForIncomingEmail(10_000, 2 * (WARMUP + MESSAGES)));
+            assertTrue(pooled > perMessage);
+        }
+    }
+
+    @Test
+    public void rateLimitsEachConnection() throws Exception {
+        var messagesPerSecond = 50;
+        try (var pool = new SmtpConnectionPool(mailSender, 1, 100, messagesPerSecond, 60_000)) {
+            sendPooled(pool, 1);
+            var start = System.nanoTime();
+            sendPooled(pool, messagesPerSecond);
+            var elapsed = System.nanoTime() - start;
+            assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(900), "sent too fast: " + elapsed + "ns");
+        }
+    }
+
+    private double measure(String name, Callable<Void> run) throws Exception {
+        var start = System.nanoTime();
+        run.call();
+        var seconds = (System.nanoTime() - start) / 1e9;
+        var rate = MESSAGES / seconds;
+        System.out.printf("%-24s %8d mails %10.1f mails/s%n", name, MESSAGES, rate);
+        return rate;
+    }
+
+    private Void sendPerMessage(int messages) throws Exception {
+        return inParallel(messages, i -> {
+            var message = new SimpleMailMessage();
+            message.setFrom(USER);
+            message.setTo(RECIPIENT);
+            message.setSubject("Активация учетной записи");
+            message.setText("Для завершения регистрации перейдите по ссылке:\nhttp://127.0.0.1:8086/user/activation?id=" + i);
+            mailSender.send(message);
+        });
+    }
+
+    private Void sendPooled(SmtpConnectionPool pool, int messages) throws Exception {
+        return inParallel(messages, i -> pool.send(mimeMessage(pool, i)));
+    }
+
+    private static MimeMessage mimeMessage(SmtpConnectionPool pool, int i) throws MessagingException {
+        var message = new MimeMessage(pool.getSession());
+        var helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setFrom(USER);
+        helper.setTo(RECIPIENT);
+        helper.setSubject("Активация учетной записи");
+        helper.setText("Для завершения регистрации перейдите по ссылке:\nhttp://127.0.0.1:8086/user/activation?id=" + i);
+        return message;
+    }
+
+    private static Void inParallel(int messages, MailTask task) throws Exception {
+        var executor = Executors.newFixedThreadPool(SENDERS);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < messages; i++) {
+                var index = i;
+                futures.add(executor.submit(() -> {
+                    task.send(index);
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+            return null;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    private interface MailTask {
+        void send(int index) throws Exception;
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.entity.AppUser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class AppUserCacheConfiguration {
+    @Value("${service.app_user_cache.max_entries:10000}")
+    private long maxEntries;
+    @Value("${service.app_user_cache.ttl_seconds:600}")
+    private long ttlSeconds;
+
+    /**
+     * Users by id. The TTL bounds staleness should an eviction message from
+     * rest-service get lost.
+     */
+    @Bean
+    public Cache<Long, AppUser> appUserCache(MeterRegistry meterRegistry) {
+        Cache<Long, AppUser> cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "appUser");
+    }
+
+    /**
+     * User ids by Telegram user id. The pair never changes, so entries only go
+     * when the cache is full.
+     */
+    @Bean
+    public Cache<Long, Long> appUserIdCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+    }
+}
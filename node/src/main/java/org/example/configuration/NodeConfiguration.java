@@ -1,5 +1,6 @@
 package org.example.configuration;
 
+import org.example.utils.BufferPool;
 import org.example.utils.CryptoTool;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -10,8 +11,16 @@ import org.springframework.context.annotation.Configuration;
 public class NodeConfiguration {
         @Value("${salt}")
         private String salt;
+        @Value("${service.file_storage.buffer_size:65536}")
+        private int bufferSize;
+        @Value("${service.file_storage.buffer_pool_size:32}")
+        private int bufferPoolSize;
     @Bean
     public CryptoTool getCryptoTool(){
                 return new CryptoTool(salt);
         }
+    @Bean
+    public BufferPool getBufferPool(){
+                return new BufferPool(bufferSize, bufferPoolSize);
+        }
 }
@@ -1,8 +1,25 @@
 package org.example.configuration;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.converter.MessageCodec;
+import org.example.converter.MessageConverters;
+import org.example.model.MailQueues;
+import org.example.model.UpdateQueues;
+import org.example.publisher.ConfirmingPublisher;
+import org.example.utils.LaneExecutor;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -11,8 +28,169 @@ import static org.example.model.RabbitQueue.*;
 @Configuration
 public class RabbitConfiguration {
     @Bean
-    public MessageConverter jsonMessageConverter(){
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter(@Value("${rabbitmq.codec:JSON}") MessageCodec codec,
+                                             @Value("${rabbitmq.compression_threshold:0}") int compressionThreshold){
+        return MessageConverters.negotiating(codec, compressionThreshold);
     }
 
+    @Bean(destroyMethod = "close")
+    public ConfirmingPublisher confirmingPublisher(CachingConnectionFactory connectionFactory,
+                                                   MessageConverter messageConverter,
+                                                   MeterRegistry meterRegistry,
+                                                   @Value("${rabbitmq.publisher.capacity:10000}") int capacity,
+                                                   @Value("${rabbitmq.publisher.max_in_flight:1000}") int maxInFlight,
+                                                   @Value("${rabbitmq.publisher.batch_size:50}") int batchSize,
+                                                   @Value("${rabbitmq.publisher.max_attempts:5}") int maxAttempts,
+                                                   @Value("${rabbitmq.publisher.confirm_timeout_ms:30000}") long confirmTimeoutMs){
+        return new ConfirmingPublisher(connectionFactory, messageConverter, meterRegistry,
+                capacity, maxInFlight, batchSize, maxAttempts, confirmTimeoutMs);
+    }
+
+    @Bean
+    public FanoutExchange appUserCacheEvictionExchange(){
+        return new FanoutExchange(APP_USER_CACHE_EVICTION);
+    }
+
+    @Bean
+    public Queue appUserCacheEvictionQueue(){
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding appUserCacheEvictionBinding(FanoutExchange appUserCacheEvictionExchange,
+                                              Queue appUserCacheEvictionQueue){
+        return BindingBuilder.bind(appUserCacheEvictionQueue).to(appUserCacheEvictionExchange);
+    }
+
+    @Bean
+    public Queue textMessageQueue(){
+        return UpdateQueues.textQueue();
+    }
+
+    @Bean
+    public Queue docMessageQueue(){
+        return UpdateQueues.docQueue();
+    }
+
+    @Bean
+    public Queue photoMessageQueue(){
+        return UpdateQueues.photoQueue();
+    }
+
+    @Bean
+    public Queue textMessageDeadLetterQueue(){
+        return UpdateQueues.textDeadLetterQueue();
+    }
+
+    @Bean
+    public Queue docMessageDeadLetterQueue(){
+        return UpdateQueues.docDeadLetterQueue();
+    }
+
+    @Bean
+    public Queue photoMessageDeadLetterQueue(){
+        return UpdateQueues.photoDeadLetterQueue();
+    }
+
+    @Bean
+    public Queue mailActivationQueue(){
+        return MailQueues.activationQueue();
+    }
+
+    @Bean
+    public Queue mailActivationDeadLetterQueue(){
+        return MailQueues.activationDeadLetterQueue();
+    }
+
+    /**
+     * Every update queue gets its own lanes and listener container, so slow file
+     * downloads cannot hold up text commands. Within a lane group, updates of one
+     * chat land on the same lane and are handled strictly in order.
+     */
+    @Bean(destroyMethod = "close")
+    public LaneExecutor textLaneExecutor(MeterRegistry meterRegistry,
+                                         @Value("${service.consumer.text.lanes:4}") int lanes){
+        return laneExecutor("text", lanes, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public LaneExecutor docLaneExecutor(MeterRegistry meterRegistry,
+                                        @Value("${service.consumer.doc.lanes:4}") int lanes){
+        return laneExecutor("doc", lanes, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public LaneExecutor photoLaneExecutor(MeterRegistry meterRegistry,
+                                          @Value("${service.consumer.photo.lanes:4}") int lanes){
+        return laneExecutor("photo", lanes, meterRegistry);
+    }
+
+    /**
+     * Text updates are consumed in batches of up to batch_size messages, or whatever
+     * arrived within batch_timeout_ms. A batch is split over the text lanes with one
+     * transaction per lane, and the next batch is taken once all of them are done:
+     * more lanes mean smaller transactions that run in parallel, fewer lanes mean
+     * fewer round trips for the senders and raw data of a batch.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory textListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${service.consumer.text.prefetch:100}") int prefetch,
+            @Value("${service.consumer.text.batch_size:50}") int batchSize,
+            @Value("${service.consumer.text.batch_timeout_ms:20}") long batchTimeoutMs){
+        var factory = laneContainerFactory(configurer, connectionFactory, Math.max(prefetch, batchSize));
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(batchTimeoutMs);
+        return factory;
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory docListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${service.consumer.doc.prefetch:8}") int prefetch){
+        return laneContainerFactory(configurer, connectionFactory, prefetch);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory photoListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${service.consumer.photo.prefetch:8}") int prefetch){
+        return laneContainerFactory(configurer, connectionFactory, prefetch);
+    }
+
+    private LaneExecutor laneExecutor(String name, int lanes, MeterRegistry meterRegistry){
+        var executor = new LaneExecutor(name, lanes);
+        for(int i = 0; i < lanes; i++){
+            var lane = i;
+            Gauge.builder("node.lane.queued", executor, e -> e.getQueued(lane))
+                    .description("Updates waiting on a lane")
+                    .tag("lane", name)
+                    .tag("index", String.valueOf(lane))
+                    .register(meterRegistry);
+        }
+        return executor;
+    }
+
+    /**
+     * A single consumer per queue keeps the broker order when handing out to lanes;
+     * messages are acknowledged once processed, so the prefetch bounds how much
+     * work can pile up on the lanes.
+     */
+    private SimpleRabbitListenerContainerFactory laneContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            int prefetch){
+        var factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(prefetch);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        return factory;
+    }
 }
@@ -0,0 +1,9 @@
+package org.example.dao;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.List;
+
+public interface RawDataBatchDAO {
+    void insertAll(List<Update> events);
+}
@@ -0,0 +1,40 @@
+package org.example.dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RawDataBatchDAOImpl implements RawDataBatchDAO {
+    // a plain nextval never collides with the pooled ranges Hibernate takes from the same sequence;
+    // an update already stored, e.g. by a text batch replayed update by update, is skipped
+    private static final String INSERT_EVENT = """
+            INSERT INTO raw_data (id, event) VALUES (nextval('raw_data_seq'), ?::jsonb)
+            ON CONFLICT (((event ->> 'update_id')::bigint)) DO NOTHING
+            """;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public RawDataBatchDAOImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts all events with a single JDBC batch, skipping updates already stored.
+     */
+    @Override
+    public void insertAll(List<Update> events) {
+        var rows = new ArrayList<Object[]>(events.size());
+        for (var event : events) {
+            try {
+                rows.add(new Object[]{objectMapper.writeValueAsString(event)});
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Update " + event.getUpdateId() + " cannot be serialized", e);
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT, rows);
+    }
+}
@@ -3,6 +3,6 @@ package org.example.dao;
 import org.example.entity.RawData;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface RawDataDAO extends JpaRepository<RawData, Long> {
+public interface RawDataDAO extends JpaRepository<RawData, Long>, RawDataBatchDAO {
 
 }
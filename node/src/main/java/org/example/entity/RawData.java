@@ -11,6 +11,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 @Builder
 @Getter
@@ -23,7 +24,8 @@ import javax.persistence.Table;
 @TypeDef(name = "jsonb", typeClass = JsonBinaryType.class)
 public class RawData {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "raw_data_seq")
+    @SequenceGenerator(name = "raw_data_seq", sequenceName = "raw_data_seq", allocationSize = 50)
     private Long id;
     @Type(type = "jsonb")
     @Column(columnDefinition = "jsonb")
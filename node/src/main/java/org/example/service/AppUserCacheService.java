@@ -0,0 +1,16 @@
+package org.example.service;
+
+import org.example.entity.AppUser;
+import org.example.entity.enums.UserState;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface AppUserCacheService {
+    AppUser findOrSave(User telegramUser);
+    Map<Long, AppUser> findOrSaveAll(Collection<User> telegramUsers);
+    void updateState(AppUser appUser, UserState state);
+    boolean updateUnconfirmedEmail(AppUser appUser, String email, UserState state);
+    void evict(Long appUserId);
+}
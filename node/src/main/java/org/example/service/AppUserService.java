@@ -1,8 +1,10 @@
 package org.example.service;
 
+import org.example.dto.MailParams;
 import org.example.entity.AppUser;
 
 public interface AppUserService {
     String registerUser(AppUser appUser);
     String setEmail(AppUser appUser, String email);
+    void onActivationMailUndelivered(MailParams mailParams);
 }
@@ -0,0 +1,10 @@
+package org.example.service;
+
+import org.example.entity.enums.ContentCodec;
+
+import java.nio.file.Path;
+
+public interface CompressionService {
+    ContentCodec selectCodec(Path file, String mimeType);
+    Path encode(Path file, ContentCodec codec);
+}
@@ -1,9 +1,16 @@
 package org.example.service;
 
+import com.rabbitmq.client.Channel;
+import org.example.dto.MailParams;
+import org.springframework.messaging.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
+import java.util.List;
+
 public interface ConsumerService {
-    void consumeTextMessageUpdate(Update update);
-    void consumeDocMessageUpdate(Update update);
-    void consumePhotoMessageUpdate(Update update);
+    void consumeTextMessageUpdates(List<Message<Update>> messages, Channel channel);
+    void consumeDocMessageUpdate(Update update, Channel channel, long deliveryTag);
+    void consumePhotoMessageUpdate(Update update, Channel channel, long deliveryTag);
+    void consumeAppUserCacheEviction(Long appUserId);
+    void consumeUndeliveredActivationMail(MailParams mailParams);
 }
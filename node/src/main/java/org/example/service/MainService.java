@@ -1,7 +1,10 @@
 package org.example.service;
 import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.List;
 public interface MainService {
     void processTextMessage(Update update);
+    void processTextMessages(List<Update> updates);
     void processDocMessage(Update update);
     void processPhotoMessage(Update update);
 
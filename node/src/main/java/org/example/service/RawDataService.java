@@ -0,0 +1,10 @@
+package org.example.service;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.List;
+
+public interface RawDataService {
+    void save(Update update);
+    void saveAll(List<Update> updates);
+}
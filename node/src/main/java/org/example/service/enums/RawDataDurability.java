@@ -0,0 +1,8 @@
+package org.example.service.enums;
+
+public enum RawDataDurability {
+    /** Events are written before the update is processed, within its transaction. */
+    SYNC,
+    /** Events are buffered and written in batches in the background. */
+    ASYNC
+}
@@ -0,0 +1,195 @@
+package org.example.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.RequiredArgsConstructor;
+import org.example.dao.AppUserDAO;
+import org.example.dao.projection.AppUserId;
+import org.example.entity.AppUser;
+import org.example.entity.enums.UserState;
+import org.example.service.AppUserCacheService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.example.entity.enums.UserState.BASIC_STATE;
+
+/**
+ * Cache of detached user snapshots by id, found through a second cache of ids by
+ * Telegram user id. Callers always get their own copy. A copy may lag behind the
+ * database, e.g. until rest-service's eviction for an activation arrives, so it is
+ * never saved back: state and email changes are targeted updates that evict the
+ * entry once the surrounding transaction, if any, has completed.
+ * <p>
+ * Users are loaded through the cache, so an eviction arriving during a load waits
+ * for it and then removes the loaded value. Bulk loads are not atomic in Caffeine;
+ * they are discarded if any eviction happened meanwhile.
+ */
+@RequiredArgsConstructor
+@Service
+public class AppUserCacheServiceImpl implements AppUserCacheService {
+    private final AppUserDAO appUserDAO;
+    private final Cache<Long, AppUser> appUserCache;
+    private final Cache<Long, Long> appUserIdCache;
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Override
+    public AppUser findOrSave(User telegramUser) {
+        var appUserId = appUserIdCache.get(telegramUser.getId(), telegramUserId -> appUserDAO
+                .findIdByTelegramUserId(telegramUserId)
+                .map(AppUserId::getId)
+                .orElse(null));
+        var appUser = appUserId == null ? null : appUserCache.get(appUserId, this::load);
+        if (appUser == null) {
+            return save(transientAppUser(telegramUser));
+        }
+        return copyOf(appUser);
+    }
+
+    @Override
+    public Map<Long, AppUser> findOrSaveAll(Collection<User> telegramUsers) {
+        var byId = telegramUsers.stream()
+                .collect(Collectors.toMap(User::getId, Function.identity(), (first, second) -> first));
+        var appUserIds = appUserIdCache.getAll(byId.keySet(), this::loadIds);
+        var evictionsBefore = evictions.get();
+        var cached = appUserCache.getAll(appUserIds.values(), this::loadAll);
+        if (evictions.get() != evictionsBefore) {
+            appUserCache.invalidateAll(appUserIds.values());
+        }
+        var appUsers = new HashMap<Long, AppUser>();
+        cached.values().forEach(appUser -> appUsers.put(appUser.getTelegramUserId(), copyOf(appUser)));
+        var missing = byId.values().stream()
+                .filter(telegramUser -> !appUsers.containsKey(telegramUser.getId()))
+                .map(this::transientAppUser)
+                .toList();
+        appUserDAO.saveAll(missing).forEach(appUser -> {
+            cacheAfterCommit(appUser);
+            appUsers.put(appUser.getTelegramUserId(), appUser);
+        });
+        return appUsers;
+    }
+
+    @Override
+    public void updateState(AppUser appUser, UserState state) {
+        appUserDAO.updateState(appUser.getId(), state);
+        appUser.setState(state);
+        evictAfterCompletion(appUser.getId());
+    }
+
+    @Override
+    public boolean updateUnconfirmedEmail(AppUser appUser, String email, UserState state) {
+        var updated = appUserDAO.updateUnconfirmedEmail(appUser.getId(), email, state) > 0;
+        if (updated) {
+            appUser.setEmail(email);
+            appUser.setState(state);
+        }
+        evictAfterCompletion(appUser.getId());
+        return updated;
+    }
+
+    @Override
+    public void evict(Long appUserId) {
+        evictions.incrementAndGet();
+        appUserCache.invalidate(appUserId);
+    }
+
+    private AppUser load(Long appUserId) {
+        return appUserDAO.findById(appUserId)
+                .map(AppUserCacheServiceImpl::copyOf)
+                .orElse(null);
+    }
+
+    private Map<Long, AppUser> loadAll(Iterable<? extends Long> appUserIds) {
+        return appUserDAO.findAllById(listOf(appUserIds)).stream()
+                .collect(Collectors.toMap(AppUser::getId, AppUserCacheServiceImpl::copyOf));
+    }
+
+    private Map<Long, Long> loadIds(Iterable<? extends Long> telegramUserIds) {
+        return appUserDAO.findIdsByTelegramUserIdIn(listOf(telegramUserIds)).stream()
+                .collect(Collectors.toMap(AppUserId::getTelegramUserId, AppUserId::getId));
+    }
+
+    private static List<Long> listOf(Iterable<? extends Long> ids) {
+        var list = new ArrayList<Long>();
+        ids.forEach(list::add);
+        return list;
+    }
+
+    private void cache(AppUser snapshot) {
+        appUserIdCache.put(snapshot.getTelegramUserId(), snapshot.getId());
+        appUserCache.put(snapshot.getId(), snapshot);
+    }
+
+    private AppUser save(AppUser appUser) {
+        var saved = appUserDAO.save(appUser);
+        cacheAfterCommit(saved);
+        return saved;
+    }
+
+    /**
+     * A new user is cached once its insert is committed, so no other transaction
+     * can find the id before the row exists.
+     */
+    private void cacheAfterCommit(AppUser appUser) {
+        var snapshot = copyOf(appUser);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache(snapshot);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    cache(snapshot);
+                }
+            }
+        });
+    }
+
+    private void evictAfterCompletion(Long appUserId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(appUserId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                evict(appUserId);
+            }
+        });
+    }
+
+    private AppUser transientAppUser(User telegramUser) {
+        return AppUser.builder()
+                .telegramUserId(telegramUser.getId())
+                .userName(telegramUser.getUserName())
+                .firstName(telegramUser.getFirstName())
+                .lastName(telegramUser.getLastName())
+                .isActive(false)
+                .state(BASIC_STATE)
+                .build();
+    }
+
+    private static AppUser copyOf(AppUser appUser) {
+        return AppUser.builder()
+                .id(appUser.getId())
+                .telegramUserId(appUser.getTelegramUserId())
+                .firstLoginDate(appUser.getFirstLoginDate())
+                .firstName(appUser.getFirstName())
+                .lastName(appUser.getLastName())
+                .userName(appUser.getUserName())
+                .email(appUser.getEmail())
+                .isActive(appUser.getIsActive())
+                .state(appUser.getState())
+                .build();
+    }
+}
@@ -7,42 +7,59 @@ import org.example.dao.AppUserDAO;
 import org.example.dto.MailParams;
 import org.example.entity.AppUser;
 import org.example.entity.enums.UserState;
+import org.example.publisher.ConfirmingPublisher;
+import org.example.service.AppUserCacheService;
 import org.example.service.AppUserService;
+import org.example.service.ProducerService;
 import org.example.utils.CryptoTool;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 
 import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
+import java.time.LocalDateTime;
 
 import static org.example.entity.enums.UserState.BASIC_STATE;
 import static org.example.entity.enums.UserState.WAIT_FOR_EMAIL_STATE;
+import static org.example.model.RabbitQueue.MAIL_ACTIVATION;
 @Log4j
 @RequiredArgsConstructor
 @Service
 public class AppUserServiceImpl implements AppUserService {
 
     private final AppUserDAO appUserDAO;
+    private final AppUserCacheService appUserCacheService;
 
     private final CryptoTool cryptoTool;
-    @Value("${service.mail.uri}")
-    private String mailServiceUri;
-
+    private final ConfirmingPublisher confirmingPublisher;
+    private final ProducerService producerService;
+    @Value("${service.activation_mail.resend_cooldown_minutes:5}")
+    private long resendCooldownMinutes;
 
     @Override
     public String registerUser(AppUser appUser){
         if(appUser.getIsActive()){
             return "Вы уже зарегистрированы!";
         }else if(appUser.getEmail() !=null){
+            // the previous mail may have been lost or dead-lettered, send it again,
+            // but not on every /registration
+            var now = LocalDateTime.now();
+            if(appUserDAO.markActivationMailResent(appUser.getId(), now, now.minusMinutes(resendCooldownMinutes)) == 0){
+                return String.format("""
+                        Письмо для подтверждения регистрации уже отправлено вам на почту.
+                        Повторно его можно запросить не чаще раза в %d мин.
+                        """, resendCooldownMinutes);
+            }
+            sendActivationMailAfterCommit(activationMail(appUser.getId(), appUser.getEmail()));
             return """
-                    Вам на почту было отправлено письмо.
+                    Вам на почту было повторно отправлено письмо.
                     Перейдите по ссылке в письме для подтверждения регистрации.
                     """;
         }
-        appUser.setState(WAIT_FOR_EMAIL_STATE);
-        appUserDAO.save(appUser);
+        appUserCacheService.updateState(appUser, WAIT_FOR_EMAIL_STATE);
         return "Введите, пожалуйста, ваш email: ";
     }
     @Override
@@ -55,19 +72,11 @@ public class AppUserServiceImpl implements AppUserService {
         }
         var optional = appUserDAO.findByEmail(email);
         if(optional.isEmpty()){
-            appUser.setEmail(email);
-            appUser.setState(BASIC_STATE);
-            appUser = appUserDAO.save(appUser);
-
-            var cryptoUserId = cryptoTool.hashOf(appUser.getId());
-            var response = sendRequestToMailService(cryptoUserId, email);
-            if(response.getStatusCode()!= HttpStatus.OK){
-                var msg = String.format("Отправка эл. письма на почту %s не удалось.",email);
-                log.error(msg);
-                appUser.setEmail(null);
-                appUserDAO.save(appUser);
-                return msg;
+            if(!appUserCacheService.updateUnconfirmedEmail(appUser, email, BASIC_STATE)){
+                return "Вы уже зарегистрированы!";
             }
+            appUserDAO.markActivationMailSent(appUser.getId(), LocalDateTime.now());
+            sendActivationMailAfterCommit(activationMail(appUser.getId(), email));
             return "Вам на почту было отправлено письмо. "
                     +"Перейдите по ссылке в письме для подтверждения";
         }else{
@@ -77,18 +86,48 @@ public class AppUserServiceImpl implements AppUserService {
         }
     }
 
-    private ResponseEntity<String> sendRequestToMailService(String cryptoUserId, String email) {
-        var restTemplate = new RestTemplate();
-        var headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        var mailParams = MailParams.builder()
-                .id(cryptoUserId)
+    /**
+     * Mail-service gave up on the activation mail. The unconfirmed address is cleared,
+     * unless it was changed or confirmed meanwhile, and the user is asked for it again.
+     */
+    @Override
+    public void onActivationMailUndelivered(MailParams mailParams) {
+        var appUserId = cryptoTool.idOf(mailParams.getId());
+        if(appUserId == null || appUserDAO.clearUnconfirmedEmail(appUserId, mailParams.getEmailTo()) == 0){
+            return;
+        }
+        log.warn("Activation mail for user " + appUserId + " was not delivered, email cleared");
+        appUserCacheService.evict(appUserId);
+        appUserDAO.findById(appUserId).ifPresent(appUser -> {
+            var sendMessage = new SendMessage();
+            sendMessage.setChatId(appUser.getTelegramUserId());
+            sendMessage.setText(String.format("Не удалось отправить письмо на почту %s. "
+                    + "Чтобы указать другой email, введите /registration", mailParams.getEmailTo()));
+            producerService.produceAnswer(sendMessage);
+        });
+    }
+
+    private MailParams activationMail(Long appUserId, String email) {
+        return MailParams.builder()
+                .id(cryptoTool.hashOf(appUserId))
                 .emailTo(email)
                 .build();
-        var request = new HttpEntity<MailParams>(mailParams, headers);
-        return restTemplate.exchange(mailServiceUri,
-                HttpMethod.POST,
-                request,
-                String.class);
+    }
+
+    /**
+     * Mail-service sends the mail from its queue, retrying on its own, so the reply
+     * does not wait for SMTP. The job is only published once the email is saved.
+     */
+    private void sendActivationMailAfterCommit(MailParams mailParams) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            confirmingPublisher.convertAndPublish(MAIL_ACTIVATION, mailParams);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                confirmingPublisher.convertAndPublish(MAIL_ACTIVATION, mailParams);
+            }
+        });
     }
 }
@@ -0,0 +1,117 @@
+package org.example.service.impl;
+
+import org.example.entity.enums.ContentCodec;
+import org.example.exceptions.UploadFileException;
+import org.example.service.CompressionService;
+import org.example.utils.BufferPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.example.entity.enums.ContentCodec.GZIP;
+import static org.example.entity.enums.ContentCodec.IDENTITY;
+
+@Service
+public class CompressionServiceImpl implements CompressionService {
+    private static final int SAMPLE_SIZE = 64 * 1024;
+    private static final int MIN_COMPRESSIBLE_SIZE = 1024;
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "application/json",
+            "application/xml",
+            "application/javascript",
+            "application/x-yaml",
+            "application/sql",
+            "application/rtf",
+            "application/x-tar",
+            "application/msword",
+            "application/vnd.ms-excel",
+            "application/vnd.ms-powerpoint",
+            "image/svg+xml",
+            "image/bmp");
+    private final BufferPool bufferPool;
+    @Value("${service.file_storage.compression.enabled:true}")
+    private boolean compressionEnabled;
+    @Value("${service.file_storage.compression.max_sample_ratio:0.9}")
+    private double maxSampleRatio;
+
+    public CompressionServiceImpl(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public ContentCodec selectCodec(Path file, String mimeType) {
+        if (!compressionEnabled || !isCompressibleType(mimeType)) {
+            return IDENTITY;
+        }
+        try {
+            if (Files.size(file) < MIN_COMPRESSIBLE_SIZE) {
+                return IDENTITY;
+            }
+            return sampleRatio(file) <= maxSampleRatio ? GZIP : IDENTITY;
+        } catch (IOException e) {
+            throw new UploadFileException("Failed to sample " + file, e);
+        }
+    }
+
+    @Override
+    public Path encode(Path file, ContentCodec codec) {
+        if (codec != GZIP) {
+            return file;
+        }
+        try {
+            var encoded = Files.createTempFile("telegram-file-", ".gz");
+            try (InputStream in = Files.newInputStream(file);
+                 var out = new GZIPOutputStream(Files.newOutputStream(encoded), bufferPool.getBufferSize())) {
+                bufferPool.copy(in, out);
+            } catch (IOException e) {
+                Files.deleteIfExists(encoded);
+                throw e;
+            }
+            return encoded;
+        } catch (IOException e) {
+            throw new UploadFileException("Failed to compress " + file, e);
+        }
+    }
+
+    private static boolean isCompressibleType(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        var type = mimeType.toLowerCase().split(";")[0].trim();
+        return type.startsWith("text/")
+                || type.endsWith("+xml")
+                || type.endsWith("+json")
+                || COMPRESSIBLE_TYPES.contains(type);
+    }
+
+    /**
+     * Deflates the first {@value #SAMPLE_SIZE} bytes to tell text-like content from
+     * data that is already compressed or encrypted despite its declared type.
+     */
+    private static double sampleRatio(Path file) throws IOException {
+        byte[] sample;
+        try (InputStream in = Files.newInputStream(file)) {
+            sample = in.readNBytes(SAMPLE_SIZE);
+        }
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+            var output = new byte[sample.length + 64];
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(output);
+            }
+            return (double) compressed / sample.length;
+        } finally {
+            deflater.end();
+        }
+    }
+}
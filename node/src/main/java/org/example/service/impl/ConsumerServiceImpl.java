@@ -1,42 +1,243 @@
 package org.example.service.impl;
 
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.log4j.Log4j;
+import org.example.dto.MailParams;
+import org.example.service.AppUserCacheService;
+import org.example.service.AppUserService;
 import org.example.service.ConsumerService;
 import org.example.service.MainService;
+import org.example.utils.LaneExecutor;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import static org.example.model.RabbitQueue.*;
 
 @Service
 @Log4j
 public class ConsumerServiceImpl implements ConsumerService {
     private final MainService mainService;
+    private final AppUserCacheService appUserCacheService;
+    private final AppUserService appUserService;
+    private final Timer textBatchTimer;
+    private final DistributionSummary textBatchSize;
+    private final Lane textLane;
+    private final Lane docLane;
+    private final Lane photoLane;
 
-    public ConsumerServiceImpl(MainService mainService) {
+    public ConsumerServiceImpl(MainService mainService,
+                               AppUserCacheService appUserCacheService,
+                               AppUserService appUserService,
+                               MeterRegistry meterRegistry,
+                               LaneExecutor textLaneExecutor,
+                               LaneExecutor docLaneExecutor,
+                               LaneExecutor photoLaneExecutor) {
         this.mainService = mainService;
+        this.appUserCacheService = appUserCacheService;
+        this.appUserService = appUserService;
+        this.textBatchTimer = Timer.builder("node.text.batch.processing")
+                .description("Time spent processing the updates of a text batch that share a lane")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.textBatchSize = DistributionSummary.builder("node.text.batch.size")
+                .register(meterRegistry);
+        this.textLane = new Lane(textLaneExecutor, meterRegistry);
+        this.docLane = new Lane(docLaneExecutor, meterRegistry);
+        this.photoLane = new Lane(photoLaneExecutor, meterRegistry);
     }
 
+    /**
+     * Splits the batch by lane. The updates of every lane are processed on it in one
+     * transaction, in parallel to the other lanes, so one chat's slow update holds up
+     * only the chats sharing its lane. The batch is acknowledged once all lanes are
+     * done, which keeps the chats' order across batches.
+     */
     @Override
-    @RabbitListener(queues = TEXT_MESSAGE_UPDATE)
-    public void consumeTextMessageUpdate(Update update) {
-        log.debug("NODE: Text message is received");
-        mainService.processTextMessage(update);
-
+    @RabbitListener(queues = TEXT_MESSAGE_UPDATE, containerFactory = "textListenerContainerFactory")
+    public void consumeTextMessageUpdates(List<Message<Update>> messages, Channel channel) {
+        log.debug("NODE: " + messages.size() + " text messages are received");
+        textBatchSize.record(messages.size());
+        var errors = new Throwable[messages.size()];
+        var byLane = IntStream.range(0, messages.size()).boxed()
+                .collect(Collectors.groupingBy(i -> textLane.laneOf(messages.get(i).getPayload()),
+                        LinkedHashMap::new, Collectors.toList()));
+        var lanes = byLane.values().stream()
+                .map(indexes -> {
+                    var updates = indexes.stream().map(i -> messages.get(i).getPayload()).toList();
+                    return textLane.run(updates, () -> processTextMessages(updates, indexes, errors));
+                })
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(lanes).join();
+        if (Arrays.stream(errors).allMatch(Objects::isNull)) {
+            acknowledge(channel, deliveryTagOf(messages.get(messages.size() - 1)), true, null);
+            return;
+        }
+        for (int i = 0; i < messages.size(); i++) {
+            acknowledge(channel, deliveryTagOf(messages.get(i)), false, errors[i]);
+        }
     }
 
     @Override
-    @RabbitListener(queues = DOC_MESSAGE_UPDATE)
-    public void consumeDocMessageUpdate(Update update) {
+    @RabbitListener(queues = DOC_MESSAGE_UPDATE, containerFactory = "docListenerContainerFactory")
+    public void consumeDocMessageUpdate(Update update, Channel channel,
+                                        @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
         log.debug("NODE: Document message is received");
-        mainService.processDocMessage(update);
+        docLane.process(update, channel, deliveryTag, mainService::processDocMessage);
     }
 
     @Override
-    @RabbitListener(queues = PHOTO_MESSAGE_UPDATE)
-    public void consumePhotoMessageUpdate(Update update) {
+    @RabbitListener(queues = PHOTO_MESSAGE_UPDATE, containerFactory = "photoListenerContainerFactory")
+    public void consumePhotoMessageUpdate(Update update, Channel channel,
+                                          @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
         log.debug("NODE: Photo message is received");
-        mainService.processPhotoMessage(update);
+        photoLane.process(update, channel, deliveryTag, mainService::processPhotoMessage);
+    }
+
+    @Override
+    @RabbitListener(queues = "#{appUserCacheEvictionQueue.name}")
+    public void consumeAppUserCacheEviction(Long appUserId) {
+        log.debug("NODE: Cached user " + appUserId + " is evicted");
+        appUserCacheService.evict(appUserId);
+    }
+
+    @Override
+    @RabbitListener(queues = MAIL_ACTIVATION_DEAD_LETTER)
+    public void consumeUndeliveredActivationMail(MailParams mailParams) {
+        log.debug("NODE: Undelivered activation mail is received");
+        appUserService.onActivationMailUndelivered(mailParams);
+    }
+
+    /**
+     * Processes the updates of one lane, falling back to one by one if the batch
+     * fails, and records each update's failure at its index.
+     */
+    private void processTextMessages(List<Update> updates, List<Integer> indexes, Throwable[] errors) {
+        var startedAt = System.nanoTime();
+        try {
+            mainService.processTextMessages(updates);
+        } catch (RuntimeException e) {
+            log.error("Failed to process a batch of " + updates.size() + " text updates, retrying one by one", e);
+            for (int i = 0; i < updates.size(); i++) {
+                try {
+                    mainService.processTextMessage(updates.get(i));
+                } catch (RuntimeException updateError) {
+                    errors[indexes.get(i)] = updateError;
+                }
+            }
+        } finally {
+            textBatchTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static long deliveryTagOf(Message<?> message) {
+        return message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+    }
+
+    /**
+     * Updates that failed because the database was briefly unavailable are requeued.
+     * Any other failure would just repeat and block the chat's lane, so the update
+     * is rejected to the queue's dead-letter queue.
+     */
+    private static void acknowledge(Channel channel, long deliveryTag, boolean multiple, Throwable error) {
+        try {
+            if (error == null) {
+                channel.basicAck(deliveryTag, multiple);
+            } else if (isTransient(error)) {
+                log.warn("Requeueing update with delivery tag " + deliveryTag + ": " + error.getMessage());
+                channel.basicNack(deliveryTag, multiple, true);
+            } else {
+                log.error("Dead-lettering update with delivery tag " + deliveryTag, error);
+                channel.basicNack(deliveryTag, multiple, false);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to acknowledge delivery " + deliveryTag + ", it will be redelivered", e);
+        }
+    }
+
+    private static boolean isTransient(Throwable error) {
+        for (var cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lane group of one queue together with its latency meters.
+     */
+    private static class Lane {
+        private final LaneExecutor executor;
+        private final Timer waitTimer;
+        private final Timer processingTimer;
+
+        private Lane(LaneExecutor executor, MeterRegistry meterRegistry) {
+            this.executor = executor;
+            this.waitTimer = Timer.builder("node.lane.wait")
+                    .description("Time an update waited for its lane")
+                    .tag("lane", executor.getName())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            this.processingTimer = Timer.builder("node.lane.processing")
+                    .description("Time spent processing an update on its lane")
+                    .tag("lane", executor.getName())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+
+        private void process(Update update, Channel channel, long deliveryTag, Consumer<Update> processor) {
+            run(List.of(update), () -> processor.accept(update))
+                    .whenComplete((ignored, error) -> acknowledge(channel, deliveryTag, false, error));
+        }
+
+        /**
+         * Runs the task on the lane of the updates, which must all share it. Every
+         * update is recorded with the time the task waited and took to run, since its
+         * answer is produced only when the whole task is done.
+         */
+        private CompletableFuture<Void> run(List<Update> updates, Runnable task) {
+            var receivedAt = System.nanoTime();
+            return executor.submit(chatIdOf(updates.get(0)), () -> {
+                var startedAt = System.nanoTime();
+                updates.forEach(update -> waitTimer.record(startedAt - receivedAt, TimeUnit.NANOSECONDS));
+                try {
+                    task.run();
+                } finally {
+                    var elapsed = System.nanoTime() - startedAt;
+                    updates.forEach(update -> processingTimer.record(elapsed, TimeUnit.NANOSECONDS));
+                }
+            });
+        }
+
+        private int laneOf(Update update) {
+            return executor.laneOf(chatIdOf(update));
+        }
+
+        private Long chatIdOf(Update update) {
+            return update.hasMessage() ? update.getMessage().getChatId() : null;
+        }
     }
 }
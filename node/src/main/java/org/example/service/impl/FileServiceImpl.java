@@ -1,5 +1,7 @@
 package org.example.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.log4j.Log4j;
 import org.example.dao.AppDocumentDAO;
 import org.example.dao.AppPhotoDAO;
@@ -8,9 +10,13 @@ import org.example.entity.AppDocument;
 import org.example.entity.AppPhoto;
 import org.example.entity.BinaryContent;
 import org.example.exceptions.UploadFileException;
+import org.example.service.CompressionService;
 import org.example.service.FileService;
 
 import org.example.service.enums.LinkType;
+import org.example.storage.BlobStore;
+import org.example.storage.BlobStoreException;
+import org.example.utils.BufferPool;
 import org.example.utils.CryptoTool;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,10 +31,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Log4j
 @Service
 public class FileServiceImpl implements FileService {
+    private static final String CONTENT_HASH_ALGORITHM = "SHA-256";
+    private static final int KNOWN_FILES_CACHE_SIZE = 10_000;
     @Value("${token}")
     private String token;
     @Value("${service.file_info.uri}")
@@ -41,26 +59,31 @@ public class FileServiceImpl implements FileService {
     private final AppPhotoDAO appPhotoDAO;
     private final BinaryContentDAO binaryContentDAO;
     private final CryptoTool cryptoTool;
+    private final BufferPool bufferPool;
+    private final BlobStore blobStore;
+    private final CompressionService compressionService;
+    private final Cache<String, Long> knownContentIds = Caffeine.newBuilder()
+            .maximumSize(KNOWN_FILES_CACHE_SIZE)
+            .build();
 
-    public FileServiceImpl(AppDocumentDAO appDocumentDAO, AppPhotoDAO appPhotoDAO, BinaryContentDAO binaryContentDAO, CryptoTool cryptoTool) {
+    public FileServiceImpl(AppDocumentDAO appDocumentDAO, AppPhotoDAO appPhotoDAO, BinaryContentDAO binaryContentDAO, CryptoTool cryptoTool, BufferPool bufferPool, BlobStore blobStore,
+                           CompressionService compressionService) {
         this.appDocumentDAO = appDocumentDAO;
         this.appPhotoDAO = appPhotoDAO;
         this.binaryContentDAO = binaryContentDAO;
         this.cryptoTool = cryptoTool;
+        this.bufferPool = bufferPool;
+        this.blobStore = blobStore;
+        this.compressionService = compressionService;
     }
 
     @Override
     public AppDocument processDoc(Message telegramMessage) {
         Document telegramDoc = telegramMessage.getDocument();
-        String fileId = telegramDoc.getFileId();
-        ResponseEntity<String>response = getFilePath(fileId);
-        if(response.getStatusCode()== HttpStatus.OK){
-        BinaryContent persistentBinaryContent = getPersistentBinaryContent(response);
-            AppDocument transientAppDoc = buildTransientAppDoc(telegramDoc,persistentBinaryContent);
-            return appDocumentDAO.save(transientAppDoc);
-        }else{
-            throw new UploadFileException("Bad response from telegram service: "+response);
-        }
+        BinaryContent persistentBinaryContent = getPersistentBinaryContent(telegramDoc.getFileId(),
+                telegramDoc.getFileUniqueId(), telegramDoc.getMimeType(), appDocumentDAO::findBinaryContentIdsByTelegramFileUniqueId);
+        AppDocument transientAppDoc = buildTransientAppDoc(telegramDoc,persistentBinaryContent);
+        return saveReferencing(persistentBinaryContent, () -> appDocumentDAO.save(transientAppDoc));
     }
 
     @Override
@@ -68,27 +91,106 @@ public class FileServiceImpl implements FileService {
         var photoSizeCount = telegramMessage.getPhoto().size();
         var photoIndex = photoSizeCount > 1 ? telegramMessage.getPhoto().size()-1 : 0;
         PhotoSize telegramPhoto = telegramMessage.getPhoto().get(photoIndex);
-        String fileId = telegramPhoto.getFileId();
+        BinaryContent persistentBinaryContent = getPersistentBinaryContent(telegramPhoto.getFileId(),
+                telegramPhoto.getFileUniqueId(), null, appPhotoDAO::findBinaryContentIdsByTelegramFileUniqueId);
+        AppPhoto transientAppDoc = buildTransientAppPhoto(telegramPhoto,persistentBinaryContent);
+        return saveReferencing(persistentBinaryContent, () -> appPhotoDAO.save(transientAppDoc));
+    }
+
+    private BinaryContent getPersistentBinaryContent(String fileId, String fileUniqueId, String mimeType,
+                                                     Function<String, List<Long>> storedContentLookup) {
+        var knownContentId = acquireKnownContent(fileUniqueId, storedContentLookup);
+        if(knownContentId.isPresent()){
+            return binaryContentDAO.getReferenceById(knownContentId.get());
+        }
         ResponseEntity<String>response = getFilePath(fileId);
         if(response.getStatusCode()== HttpStatus.OK){
-            BinaryContent persistentBinaryContent = getPersistentBinaryContent(response);
-            AppPhoto transientAppDoc = buildTransientAppPhoto(telegramPhoto,persistentBinaryContent);
-            return appPhotoDAO.save(transientAppDoc);
+            BinaryContent persistentBinaryContent = getPersistentBinaryContent(response, mimeType);
+            if(fileUniqueId != null){
+                knownContentIds.put(fileUniqueId, persistentBinaryContent.getId());
+            }
+            return persistentBinaryContent;
         }else{
             throw new UploadFileException("Bad response from telegram service: "+response);
         }
     }
 
+    private Optional<Long> acquireKnownContent(String fileUniqueId, Function<String, List<Long>> storedContentLookup) {
+        if(fileUniqueId == null){
+            return Optional.empty();
+        }
+        Long contentId = knownContentIds.get(fileUniqueId, key -> storedContentLookup.apply(key).stream()
+                .findFirst()
+                .orElse(null));
+        if(contentId != null && binaryContentDAO.incrementRefCount(contentId) > 0){
+            return Optional.of(contentId);
+        }
+        knownContentIds.invalidate(fileUniqueId);
+        return Optional.empty();
+    }
+
+    private BinaryContent getPersistentBinaryContent(ResponseEntity<String>response, String mimeType) {
+        String filePath = getFilePath(response);
+        SpooledFile spooledFile = downloadFile(filePath);
+        try{
+            Long contentId = binaryContentDAO.findIdByContentHash(spooledFile.contentHash())
+                    .filter(id -> binaryContentDAO.incrementRefCount(id) > 0)
+                    .orElseGet(() -> persistSpooledFile(spooledFile, mimeType));
+            return binaryContentDAO.getReferenceById(contentId);
+        } finally {
+            deleteSpooledFile(spooledFile.path());
+        }
+    }
+
+    private Long persistSpooledFile(SpooledFile spooledFile, String mimeType) {
+        var codec = compressionService.selectCodec(spooledFile.path(), mimeType);
+        var storedFile = compressionService.encode(spooledFile.path(), codec);
+        try{
+            var contentRef = blobStore.write(storedFile);
+            var transientBinaryContent = BinaryContent.builder()
+                    .contentRef(contentRef)
+                    .fileSize(Files.size(spooledFile.path()))
+                    .storedSize(Files.size(storedFile))
+                    .codec(codec)
+                    .contentHash(spooledFile.contentHash())
+                    .build();
+            var persistentBinaryContent = binaryContentDAO.upsert(transientBinaryContent);
+            if(!contentRef.equals(persistentBinaryContent.getContentRef())){
+                deleteUnreferencedBlob(contentRef);
+            }
+            return persistentBinaryContent.getId();
+        } catch (IOException | BlobStoreException e) {
+            throw new UploadFileException("Failed to persist downloaded file "+spooledFile.path(), e);
+        } finally {
+            if(!storedFile.equals(spooledFile.path())){
+                deleteSpooledFile(storedFile);
+            }
+        }
+    }
 
+    private <T> T saveReferencing(BinaryContent binaryContent, Supplier<T> save) {
+        try {
+            return save.get();
+        } catch (RuntimeException e) {
+            releaseBinaryContent(binaryContent);
+            throw e;
+        }
+    }
 
+    private void releaseBinaryContent(BinaryContent binaryContent) {
+        var contentId = binaryContent.getId();
+        binaryContentDAO.decrementRefCount(contentId);
+        var contentRef = binaryContentDAO.findContentRefById(contentId);
+        if(binaryContentDAO.deleteIfUnreferenced(contentId) > 0){
+            contentRef.ifPresent(this::deleteUnreferencedBlob);
+        }
+    }
 
-    private BinaryContent getPersistentBinaryContent(ResponseEntity<String>response) {
-        String filePath = getFilePath(response);
-        byte[] fileInByte = downloadFile(filePath);
-        BinaryContent transientBinaryContent = BinaryContent.builder()
-                .fileAsArrayOfBytes(fileInByte)
-                .build();
-        return binaryContentDAO.save(transientBinaryContent);
+    // blobs are keyed by their stored bytes, another row may hold the same reference
+    private void deleteUnreferencedBlob(String contentRef) {
+        if(!binaryContentDAO.existsByContentRef(contentRef)){
+            blobStore.delete(contentRef);
+        }
     }
 
     private static String getFilePath(ResponseEntity<String> response) {
@@ -103,6 +205,7 @@ public class FileServiceImpl implements FileService {
     private AppDocument buildTransientAppDoc(Document telegramDoc, BinaryContent persistentBinaryContent) {
             return AppDocument.builder()
                     .telegramField(telegramDoc.getFileId())
+                    .telegramFileUniqueId(telegramDoc.getFileUniqueId())
                     .binaryContent(persistentBinaryContent)
                     .docName(telegramDoc.getFileName())
                     .mimeType(telegramDoc.getMimeType())
@@ -112,6 +215,7 @@ public class FileServiceImpl implements FileService {
     private AppPhoto buildTransientAppPhoto(PhotoSize telegramPhoto, BinaryContent persistentBinaryContent) {
         return AppPhoto.builder()
                 .telegramField(telegramPhoto.getFileId())
+                .telegramFileUniqueId(telegramPhoto.getFileUniqueId())
                 .binaryContent(persistentBinaryContent)
                 .fileSize(telegramPhoto.getFileSize())
                 .build();
@@ -130,7 +234,7 @@ public class FileServiceImpl implements FileService {
                 token,fileId
         );
     }
-    private byte[] downloadFile(String filePath) {
+    private SpooledFile downloadFile(String filePath) {
             String fullUri = fileStorageUri.replace("{token}",token)
                     .replace("{filePath}",filePath);
             URL urlObj = null;
@@ -140,13 +244,45 @@ public class FileServiceImpl implements FileService {
                 throw new UploadFileException(e);
             }
 
-        try(InputStream is = urlObj.openStream()){
-                return is.readAllBytes();
+        Path spooledFile = createSpooledFile();
+        MessageDigest digest = createContentDigest();
+        try(InputStream is = new DigestInputStream(urlObj.openStream(), digest);
+            var out = Files.newOutputStream(spooledFile)){
+                bufferPool.copy(is, out);
+                return new SpooledFile(spooledFile, HexFormat.of().formatHex(digest.digest()));
             } catch (IOException e) {
+                deleteSpooledFile(spooledFile);
                 throw new UploadFileException(urlObj.toExternalForm(),e);
             }
     }
 
+    private static MessageDigest createContentDigest() {
+        try {
+            return MessageDigest.getInstance(CONTENT_HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Path createSpooledFile() {
+        try {
+            return Files.createTempFile("telegram-file-", ".part");
+        } catch (IOException e) {
+            throw new UploadFileException("Failed to create temporary file", e);
+        }
+    }
+
+    private static void deleteSpooledFile(Path spooledFile) {
+        try {
+            Files.deleteIfExists(spooledFile);
+        } catch (IOException e) {
+            log.error("Failed to delete temporary file "+spooledFile, e);
+        }
+    }
+
+    private record SpooledFile(Path path, String contentHash) {
+    }
+
     @Override
     public String generateLink(Long docId, LinkType linkType) {
         var hash = cryptoTool.hashOf(docId);
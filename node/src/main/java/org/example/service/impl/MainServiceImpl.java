@@ -3,23 +3,26 @@ package org.example.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j;
 import org.example.dao.AppDocumentDAO;
-import org.example.dao.AppUserDAO;
-import org.example.dao.RawDataDAO;
 import org.example.entity.AppDocument;
 import org.example.entity.AppPhoto;
 import org.example.entity.AppUser;
-import org.example.entity.RawData;
 import org.example.exceptions.UploadFileException;
+import org.example.service.AppUserCacheService;
 import org.example.service.AppUserService;
 import org.example.service.FileService;
 import org.example.service.MainService;
 import org.example.service.ProducerService;
+import org.example.service.RawDataService;
 import org.example.service.enums.LinkType;
 import org.example.service.enums.ServiceCommand;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Update;
-import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static org.example.entity.enums.UserState.BASIC_STATE;
 import static org.example.entity.enums.UserState.WAIT_FOR_EMAIL_STATE;
@@ -31,16 +34,39 @@ import static org.example.service.enums.ServiceCommand.*;
 @RequiredArgsConstructor
 @Service
 public class MainServiceImpl implements MainService {
-    private final RawDataDAO rawDataDAO;
+    private final RawDataService rawDataService;
     private final ProducerService producerService;
-    private final AppUserDAO appUserDAO;
+    private final AppUserCacheService appUserCacheService;
     private final FileService fileService;
     private final AppUserService appUserService;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public void processTextMessage(Update update) {
-            saveRawData(update);
-        var appUser = findOrSaveAppUser(update);
+        processTextMessages(List.of(update));
+    }
+
+    /**
+     * Handles a batch of text updates in one transaction: raw data is handed over in
+     * one call, all senders are resolved with one query. Answers are published in the
+     * order of the updates once the transaction has committed.
+     */
+    @Override
+    public void processTextMessages(List<Update> updates) {
+        var answers = transactionTemplate.execute(status -> {
+            rawDataService.saveAll(updates);
+            var appUsers = findOrSaveAppUsers(updates);
+            var result = new ArrayList<SendMessage>(updates.size());
+            for (var update : updates) {
+                var appUser = appUsers.get(update.getMessage().getFrom().getId());
+                result.add(answerMessage(answerTextMessage(appUser, update), update.getMessage().getChatId()));
+            }
+            return result;
+        });
+        answers.forEach(producerService::produceAnswer);
+    }
+
+    private String answerTextMessage(AppUser appUser, Update update) {
         var userState = appUser.getState();
         var text = update.getMessage().getText();
         var output = "";
@@ -56,8 +82,7 @@ public class MainServiceImpl implements MainService {
             log.error("Unknown user state: "+ userState);
             output = "Неизвестная ошибка! Введите /cancel и попробуйте снова! ";
         }
-        var chatId = update.getMessage().getChatId();
-        sendAnswer(output, chatId);
+        return output;
     }
 
     @Override
@@ -116,10 +141,14 @@ public class MainServiceImpl implements MainService {
     }
 
     private void sendAnswer(String output, Long chatId) {
+        producerService.produceAnswer(answerMessage(output, chatId));
+    }
+
+    private SendMessage answerMessage(String output, Long chatId) {
         SendMessage sendMessage = new SendMessage();
         sendMessage.setChatId(chatId);
         sendMessage.setText(output);
-        producerService.produceAnswer(sendMessage);
+        return sendMessage;
     }
 
     private String processServiceCommand(AppUser appUser, String cmd) {
@@ -145,32 +174,21 @@ public class MainServiceImpl implements MainService {
     }
 
     private String cancelProcess(AppUser appUser) {
-        appUser.setState(BASIC_STATE);
-        appUserDAO.save(appUser);
+        appUserCacheService.updateState(appUser, BASIC_STATE);
         return "Команда отменена! ";
     }
 
 
     private AppUser findOrSaveAppUser(Update update){
-        User telegramUser = update.getMessage().getFrom();
-        var optional = appUserDAO.findByTelegramUserId(telegramUser.getId());
-        if(optional.isEmpty()){
-                AppUser transientAppUser = AppUser.builder()
-                        .telegramUserId(telegramUser.getId())
-                        .userName(telegramUser.getUserName())
-                        .firstName(telegramUser.getFirstName())
-                        .lastName(telegramUser.getLastName())
-                        .isActive(false)
-                        .state(BASIC_STATE)
-                        .build();
-                return appUserDAO.save(transientAppUser);
-            }
-        return optional.get();
+        return appUserCacheService.findOrSave(update.getMessage().getFrom());
+    }
+
+    private Map<Long, AppUser> findOrSaveAppUsers(List<Update> updates){
+        return appUserCacheService.findOrSaveAll(updates.stream()
+                .map(update -> update.getMessage().getFrom())
+                .toList());
     }
     private void saveRawData(Update update) {
-            var rawData = RawData.builder()
-                    .event(update)
-                    .build();
-            rawDataDAO.save(rawData);
+            rawDataService.save(update);
     }
 }
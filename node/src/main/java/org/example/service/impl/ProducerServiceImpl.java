@@ -1,7 +1,7 @@
 package org.example.service.impl;
 
 import org.example.service.ProducerService;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.example.publisher.ConfirmingPublisher;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 
@@ -9,14 +9,14 @@ import static org.example.model.RabbitQueue.ANSWER_MESSAGE;
 
 @Service
 public class ProducerServiceImpl implements ProducerService {
-    private final RabbitTemplate rabbitTemplate;
+    private final ConfirmingPublisher confirmingPublisher;
 
-    public ProducerServiceImpl(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public ProducerServiceImpl(ConfirmingPublisher confirmingPublisher) {
+        this.confirmingPublisher = confirmingPublisher;
     }
 
     @Override
     public void produceAnswer(SendMessage sendMessage) {
-        rabbitTemplate.convertAndSend(ANSWER_MESSAGE,sendMessage);
+        confirmingPublisher.convertAndPublish(ANSWER_MESSAGE,sendMessage);
     }
 }
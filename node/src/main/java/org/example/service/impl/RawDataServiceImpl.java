@@ -0,0 +1,285 @@
+package org.example.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j;
+import org.example.dao.RawDataDAO;
+import org.example.service.RawDataService;
+import org.example.service.enums.RawDataDurability;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores raw updates. In ASYNC mode events go into a bounded buffer that a
+ * background thread flushes in JDBC batches once batch_size events are queued or
+ * flush_interval_ms has passed. A full buffer blocks callers instead of dropping
+ * events.
+ * <p>
+ * A batch that fails because the database is unavailable is retried with
+ * exponential backoff until it is written, while the buffer holds callers back.
+ * Only when the database rejects the batch itself (a constraint or an event that
+ * cannot be serialized) is it written row by row, and only the rejected rows are
+ * logged and dropped.
+ * <p>
+ * On shutdown the buffer is drained; whatever is not written within
+ * shutdown_timeout_seconds is spilled to spill_dir and written on the next start.
+ */
+@Log4j
+@Service
+public class RawDataServiceImpl implements RawDataService {
+    private static final String SPILL_FILE_PREFIX = "raw-data-";
+    private static final String SPILL_FILE_SUFFIX = ".jsonl";
+
+    private final RawDataDAO rawDataDAO;
+    private final RawDataDurability durability;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long shutdownTimeoutSeconds;
+    private final long retryInitialMs;
+    private final long retryMaxMs;
+    private final Path spillDir;
+    private final BlockingQueue<Update> buffer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Timer flushTimer;
+    private final Counter flushFailures;
+    private final Counter dropped;
+    private volatile boolean running = true;
+    private Thread flusherThread;
+
+    public RawDataServiceImpl(RawDataDAO rawDataDAO,
+                              MeterRegistry meterRegistry,
+                              @Value("${service.raw_data.durability:ASYNC}") RawDataDurability durability,
+                              @Value("${service.raw_data.buffer_capacity:10000}") int bufferCapacity,
+                              @Value("${service.raw_data.batch_size:500}") int batchSize,
+                              @Value("${service.raw_data.flush_interval_ms:200}") long flushIntervalMs,
+                              @Value("${service.raw_data.shutdown_timeout_seconds:30}") long shutdownTimeoutSeconds,
+                              @Value("${service.raw_data.retry_initial_ms:100}") long retryInitialMs,
+                              @Value("${service.raw_data.retry_max_ms:30000}") long retryMaxMs,
+                              @Value("${service.raw_data.spill_dir:raw-data-spill}") Path spillDir) {
+        this.rawDataDAO = rawDataDAO;
+        this.durability = durability;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        this.retryInitialMs = retryInitialMs;
+        this.retryMaxMs = retryMaxMs;
+        this.spillDir = spillDir;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        Gauge.builder("node.raw_data.buffered", buffer, BlockingQueue::size)
+                .description("Raw updates waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("node.raw_data.flush")
+                .register(meterRegistry);
+        this.flushFailures = meterRegistry.counter("node.raw_data.flush.failures");
+        this.dropped = meterRegistry.counter("node.raw_data.dropped");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (durability == RawDataDurability.ASYNC) {
+            flusherThread = new Thread(this::flushLoop, "raw-data-flusher");
+            // stop() interrupts the flusher once the timeout is over and waits for its spill
+            flusherThread.setDaemon(true);
+            flusherThread.start();
+        }
+    }
+
+    @Override
+    public void save(Update update) {
+        saveAll(List.of(update));
+    }
+
+    @Override
+    public void saveAll(List<Update> updates) {
+        if (durability == RawDataDurability.SYNC) {
+            rawDataDAO.insertAll(updates);
+            return;
+        }
+        if (!running) {
+            throw new IllegalStateException("Raw data service is stopped");
+        }
+        try {
+            for (var update : updates) {
+                buffer.put(update);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while buffering raw data", e);
+        }
+    }
+
+    private void flushLoop() {
+        var batch = new ArrayList<Update>(batchSize);
+        try {
+            replaySpilled(batch);
+            while (running || !buffer.isEmpty()) {
+                collect(batch);
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            buffer.drainTo(batch);
+            spill(batch);
+        }
+    }
+
+    private void collect(List<Update> batch) throws InterruptedException {
+        var first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize && running) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            var remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            var next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+        buffer.drainTo(batch, batchSize - batch.size());
+    }
+
+    private void flush(List<Update> batch) throws InterruptedException {
+        if (!insert(batch)) {
+            log.warn(batch.size() + " raw updates were rejected as a batch, writing them one by one");
+            for (var update : batch) {
+                if (!insert(List.of(update))) {
+                    dropped.increment();
+                    log.error("Dropping raw update " + update.getUpdateId() + " rejected by the database");
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the events, waiting out any outage of the database.
+     *
+     * @return false if the database rejected the events themselves
+     */
+    private boolean insert(List<Update> events) throws InterruptedException {
+        var backoffMs = retryInitialMs;
+        while (true) {
+            try {
+                flushTimer.record(() -> rawDataDAO.insertAll(events));
+                return true;
+            } catch (RuntimeException e) {
+                flushFailures.increment();
+                if (isRejected(e)) {
+                    log.error("Database rejected " + events.size() + " raw updates: " + e.getMessage());
+                    return false;
+                }
+                log.error("Failed to write " + events.size() + " raw updates, retrying in " + backoffMs + " ms", e);
+            }
+            Thread.sleep(backoffMs);
+            backoffMs = Math.min(backoffMs * 2, retryMaxMs);
+        }
+    }
+
+    /**
+     * Whether the failure is caused by the events rather than by the database being
+     * unreachable. Anything unknown counts as an outage, so it is retried, not dropped.
+     */
+    private static boolean isRejected(RuntimeException e) {
+        if (e instanceof IllegalArgumentException) {
+            return true;
+        }
+        return e instanceof NonTransientDataAccessException
+                && !(e instanceof DataAccessResourceFailureException)
+                && !(e instanceof NonTransientDataAccessResourceException);
+    }
+
+    private void replaySpilled(List<Update> batch) throws InterruptedException {
+        if (!Files.isDirectory(spillDir)) {
+            return;
+        }
+        try (var files = Files.list(spillDir)) {
+            for (var file : files.filter(RawDataServiceImpl::isSpillFile).sorted().toList()) {
+                log.info("Writing raw updates spilled to " + file);
+                for (var line : Files.readAllLines(file)) {
+                    batch.add(objectMapper.readValue(line, Update.class));
+                    if (batch.size() == batchSize) {
+                        flush(batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    batch.clear();
+                }
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            // the file stays, an update stored twice is skipped on the next attempt
+            log.error("Failed to replay spilled raw updates from " + spillDir, e);
+            batch.clear();
+        }
+    }
+
+    private static boolean isSpillFile(Path file) {
+        var name = file.getFileName().toString();
+        return name.startsWith(SPILL_FILE_PREFIX) && name.endsWith(SPILL_FILE_SUFFIX);
+    }
+
+    private void spill(List<Update> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        var file = spillDir.resolve(SPILL_FILE_PREFIX + System.currentTimeMillis() + SPILL_FILE_SUFFIX);
+        try {
+            Files.createDirectories(spillDir);
+            var lines = new ArrayList<String>(events.size());
+            for (var event : events) {
+                lines.add(objectMapper.writeValueAsString(event));
+            }
+            Files.write(file, lines);
+            log.warn("Spilled " + events.size() + " unwritten raw updates to " + file);
+        } catch (IOException e) {
+            dropped.increment(events.size());
+            log.error("Failed to spill " + events.size() + " raw updates to " + file + ", they are lost", e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusherThread == null) {
+            return;
+        }
+        flusherThread.join(TimeUnit.SECONDS.toMillis(shutdownTimeoutSeconds));
+        if (flusherThread.isAlive()) {
+            log.error("Raw data buffer not drained within " + shutdownTimeoutSeconds + "s, spilling "
+                    + buffer.size() + " buffered updates to " + spillDir);
+            flusherThread.interrupt();
+            flusherThread.join();
+        }
+        // events that slipped in while the flusher was finishing
+        var late = new ArrayList<Update>();
+        buffer.drainTo(late);
+        spill(late);
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.dao;
+
+import org.example.configuration.JpaBatchingConfiguration;
+import org.example.configuration.SchemaConfiguration;
+import org.example.entity.AppDocument;
+import org.example.entity.AppUser;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import static org.example.entity.enums.UserState.BASIC_STATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Inserts through the real repositories with the node's JPA settings: pooled
+ * sequence ids and hibernate.jdbc.batch_size. Rows saved in one flush must reach
+ * the database in JDBC batches, which is checked on Hibernate's statement count
+ * rather than on timings. Throughput is only printed, next to a baseline of the
+ * same number of rows saved without JDBC batching.
+ * <p>
+ * Batching applies where many rows are saved at once: the senders of a text batch
+ * (AppUser) and the raw data buffer. An upload saves its single AppDocument or
+ * AppPhoto on its own, so it only saves the id round trip, not statements.
+ * <p>
+ * Every test rolls back, but the migrations run first, so point it at a scratch
+ * Postgres database:
+ * {@code mvn test -Pbenchmark -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/scratch
+ * -Dbenchmark.jdbc.user=... -Dbenchmark.jdbc.password=...}
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark.jdbc.url", matches = ".+")
+@DataJpaTest(properties = {
+        "spring.datasource.url=${benchmark.jdbc.url}",
+        "spring.datasource.username=${benchmark.jdbc.user:postgres}",
+        "spring.datasource.password=${benchmark.jdbc.password:}",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({JpaBatchingConfiguration.class, SchemaConfiguration.class})
+class InsertThroughputBenchmarkTest {
+    private static final int ROWS = 10_000;
+    private static final int BATCH_SIZE = 50;
+    // far away from real Telegram ids, the rows are rolled back anyway
+    private static final long ID_BASE = -1_000_000_000L;
+
+    @Autowired
+    private AppUserDAO appUserDAO;
+    @Autowired
+    private AppDocumentDAO appDocumentDAO;
+    @Autowired
+    private RawDataDAO rawDataDAO;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private EntityManager entityManager;
+    private Statistics statistics;
+
+    @BeforeEach
+    void resetStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void appUsersAreInsertedInJdbcBatches() {
+        IntFunction<AppUser> row = i -> AppUser.builder()
+                .telegramUserId(ID_BASE - i)
+                .userName("user" + i)
+                .firstName("Ivan")
+                .isActive(false)
+                .state(BASIC_STATE)
+                .build();
+        compare("app_user, saveAll", row, appUsers -> {
+            appUserDAO.saveAll(appUsers);
+            appUserDAO.flush();
+        });
+    }
+
+    @Test
+    public void appDocumentsAreInsertedInJdbcBatches() {
+        IntFunction<AppDocument> row = i -> AppDocument.builder()
+                .telegramField("BQACAgIAAxkBAAIWzWUmYk2sUq3v9wqV1m3k0aQm7XhU" + i)
+                .telegramFileUniqueId("AgADzWUmYk" + i)
+                .docName("report-" + i + ".pdf")
+                .mimeType("application/pdf")
+                .fileSize(482113L + i)
+                .build();
+        compare("app_document, saveAll", row, appDocuments -> {
+            appDocumentDAO.saveAll(appDocuments);
+            appDocumentDAO.flush();
+        });
+    }
+
+    @Test
+    public void rawDataIsInsertedInOneJdbcBatch() {
+        IntFunction<Update> row = i -> {
+            var message = new Message();
+            message.setText("/help");
+            var update = new Update();
+            update.setUpdateId((int) (ID_BASE / 2 - i));
+            update.setMessage(message);
+            return update;
+        };
+        var updates = build(row, 0);
+        var before = rawDataDAO.count();
+        var batched = measure("raw_data, insertAll", () -> rawDataDAO.insertAll(updates));
+        assertEquals(ROWS, rawDataDAO.count() - before);
+        // every update on its own, as each of them used to be saved
+        var unbatchedUpdates = build(row, ROWS);
+        var unbatched = measure("raw_data, one by one", () -> unbatchedUpdates.forEach(
+                update -> rawDataDAO.insertAll(List.of(update))));
+        printGain(unbatched, batched);
+    }
+
+    /**
+     * Saves ROWS rows with the node's settings and checks they went out in batches,
+     * then saves as many other rows with JDBC batching turned off for the session
+     * as the baseline. The batched run goes first, so it rather than the baseline
+     * pays for warming up.
+     */
+    private <T> void compare(String name, IntFunction<T> row, Consumer<List<T>> save) {
+        var rows = build(row, 0);
+        var batched = measure(name, () -> save.accept(rows));
+        assertBatched();
+
+        entityManager.clear();
+        statistics.clear();
+        var session = entityManager.unwrap(Session.class);
+        session.setJdbcBatchSize(1);
+        try {
+            var unbatchedRows = build(row, ROWS);
+            var unbatched = measure(name + ", batch_size=1", () -> save.accept(unbatchedRows));
+            printGain(unbatched, batched);
+        } finally {
+            session.setJdbcBatchSize(null);
+        }
+    }
+
+    /**
+     * One statement per batch of inserts, at most one more per block of ids taken
+     * from the sequence; without batching there would be one per row.
+     */
+    private void assertBatched() {
+        var batches = (ROWS + BATCH_SIZE - 1) / BATCH_SIZE;
+        assertEquals(ROWS, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 2L * batches,
+                statistics.getPrepareStatementCount() + " statements for " + ROWS + " rows");
+    }
+
+    private static <T> List<T> build(IntFunction<T> row, int from) {
+        var rows = new ArrayList<T>(ROWS);
+        for (int i = from; i < from + ROWS; i++) {
+            rows.add(row.apply(i));
+        }
+        return rows;
+    }
+
+    /**
+     * @return seconds the insert took
+     */
+    private double measure(String name, Runnable insert) {
+        var start = System.nanoTime();
+        insert.run();
+        var seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-32s %8d rows %8.2f s %10.0f rows/s %6d statements%n",
+                name, ROWS, seconds, ROWS / seconds, statistics.getPrepareStatementCount());
+        return seconds;
+    }
+
+    private static void printGain(double unbatchedSeconds, double batchedSeconds) {
+        System.out.printf("%-32s %8.1fx%n", "  batched vs. unbatched", unbatchedSeconds / batchedSeconds);
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.dao.RawDataDAO;
+import org.example.service.enums.RawDataDurability;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class RawDataServiceImplTest {
+    private static final int BAD_UPDATE_ID = 13;
+
+    @TempDir
+    Path spillDir;
+    private final RawDataDAO rawDataDAO = mock(RawDataDAO.class);
+    private final Set<Integer> stored = ConcurrentHashMap.newKeySet();
+    private final List<RawDataServiceImpl> services = new ArrayList<>();
+
+    @AfterEach
+    void stopServices() throws InterruptedException {
+        for (var service : services) {
+            service.stop();
+        }
+    }
+
+    @Test
+    public void testOutageIsRetriedUntilWritten() throws Exception {
+        var failures = new AtomicInteger(3);
+        failWith(events -> failures.getAndDecrement() > 0
+                ? new DataAccessResourceFailureException("connection refused") : null);
+        var service = start(30);
+
+        service.saveAll(updates(1, 2, 3));
+        service.stop();
+
+        assertEquals(Set.of(1, 2, 3), stored);
+        assertNoSpill();
+    }
+
+    @Test
+    public void testOnlyRejectedRowsAreDropped() throws Exception {
+        failWith(events -> events.stream().anyMatch(update -> update.getUpdateId() == BAD_UPDATE_ID)
+                ? new DataIntegrityViolationException("rejected") : null);
+        var service = start(30);
+
+        service.saveAll(updates(1, BAD_UPDATE_ID, 3));
+        service.stop();
+
+        assertEquals(Set.of(1, 3), stored);
+    }
+
+    @Test
+    public void testUnwrittenUpdatesAreSpilledOnShutdownAndWrittenOnStart() throws Exception {
+        var databaseUp = new AtomicBoolean();
+        failWith(events -> !databaseUp.get() ? new DataAccessResourceFailureException("connection refused") : null);
+        var service = start(1);
+
+        service.saveAll(updates(1, 2, 3));
+        service.stop();
+        assertTrue(stored.isEmpty());
+        assertEquals(1, spillFiles().size());
+
+        databaseUp.set(true);
+        var restarted = start(30);
+        restarted.stop();
+        assertEquals(Set.of(1, 2, 3), stored);
+        assertNoSpill();
+    }
+
+    @Test
+    public void testUpdatesAreRejectedOnceStopped() throws Exception {
+        var service = start(30);
+        service.stop();
+
+        assertThrows(IllegalStateException.class, () -> service.saveAll(updates(1)));
+    }
+
+    private RawDataServiceImpl start(long shutdownTimeoutSeconds) {
+        var service = new RawDataServiceImpl(rawDataDAO, new SimpleMeterRegistry(), RawDataDurability.ASYNC,
+                100, 10, 10, shutdownTimeoutSeconds, 10, 50, spillDir);
+        service.start();
+        services.add(service);
+        return service;
+    }
+
+    private void failWith(Function<List<Update>, RuntimeException> failure) {
+        doAnswer(invocation -> {
+            List<Update> events = invocation.getArgument(0);
+            var error = failure.apply(events);
+            if (error != null) {
+                throw error;
+            }
+            events.forEach(update -> stored.add(update.getUpdateId()));
+            return null;
+        }).when(rawDataDAO).insertAll(anyList());
+    }
+
+    private static List<Update> updates(int... ids) {
+        var updates = new ArrayList<Update>();
+        for (var id : ids) {
+            var update = new Update();
+            update.setUpdateId(id);
+            updates.add(update);
+        }
+        return updates;
+    }
+
+    private List<Path> spillFiles() throws Exception {
+        try (var files = Files.list(spillDir)) {
+            return files.toList();
+        }
+    }
+
+    private void assertNoSpill() throws Exception {
+        assertTrue(spillFiles().isEmpty());
+    }
+}
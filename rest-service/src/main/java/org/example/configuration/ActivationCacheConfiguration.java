@@ -0,0 +1,33 @@
+package org.example.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class ActivationCacheConfiguration {
+    @Value("${service.activation_cache.max_entries:10000}")
+    private long maxEntries;
+    @Value("${service.activation_cache.ttl_seconds:3600}")
+    private long ttlSeconds;
+
+    /**
+     * Activation hashes known to be invalid or already used. Only negative answers
+     * are kept, so the TTL just bounds how long a rejected hash stays in memory.
+     */
+    @Bean
+    public Cache<String, Boolean> rejectedActivationCache(MeterRegistry meterRegistry) {
+        Cache<String, Boolean> cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "rejectedActivation");
+    }
+}
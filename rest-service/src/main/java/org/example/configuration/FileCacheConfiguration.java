@@ -0,0 +1,37 @@
+package org.example.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.dao.projection.FileMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FileCacheConfiguration {
+    @Value("${service.file_cache.metadata_max_entries:10000}")
+    private long metadataMaxEntries;
+    @Value("${service.file_cache.content_max_bytes:67108864}")
+    private long contentMaxBytes;
+
+    @Bean
+    public Cache<String, FileMetadata> fileMetadataCache(MeterRegistry meterRegistry) {
+        Cache<String, FileMetadata> cache = Caffeine.newBuilder()
+                .maximumSize(metadataMaxEntries)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "fileMetadata");
+    }
+
+    @Bean
+    public Cache<String, byte[]> fileContentCache(MeterRegistry meterRegistry) {
+        Cache<String, byte[]> cache = Caffeine.newBuilder()
+                .maximumWeight(contentMaxBytes)
+                .weigher((String contentRef, byte[] content) -> content.length)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "fileContent");
+    }
+}
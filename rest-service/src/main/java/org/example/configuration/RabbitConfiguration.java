@@ -0,0 +1,41 @@
+package org.example.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.converter.MessageCodec;
+import org.example.converter.MessageConverters;
+import org.example.publisher.ConfirmingPublisher;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.example.model.RabbitQueue.APP_USER_CACHE_EVICTION;
+
+@Configuration
+public class RabbitConfiguration {
+    @Bean
+    public MessageConverter messageConverter(@Value("${rabbitmq.codec:JSON}") MessageCodec codec,
+                                             @Value("${rabbitmq.compression_threshold:0}") int compressionThreshold){
+        return MessageConverters.negotiating(codec, compressionThreshold);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ConfirmingPublisher confirmingPublisher(CachingConnectionFactory connectionFactory,
+                                                   MessageConverter messageConverter,
+                                                   MeterRegistry meterRegistry,
+                                                   @Value("${rabbitmq.publisher.capacity:10000}") int capacity,
+                                                   @Value("${rabbitmq.publisher.max_in_flight:1000}") int maxInFlight,
+                                                   @Value("${rabbitmq.publisher.batch_size:50}") int batchSize,
+                                                   @Value("${rabbitmq.publisher.max_attempts:5}") int maxAttempts,
+                                                   @Value("${rabbitmq.publisher.confirm_timeout_ms:30000}") long confirmTimeoutMs){
+        return new ConfirmingPublisher(connectionFactory, messageConverter, meterRegistry,
+                capacity, maxInFlight, batchSize, maxAttempts, confirmTimeoutMs);
+    }
+
+    @Bean
+    public FanoutExchange appUserCacheEvictionExchange(){
+        return new FanoutExchange(APP_USER_CACHE_EVICTION);
+    }
+}
@@ -21,6 +21,6 @@ public class ActivationController {
         if(res){
             return ResponseEntity.ok().body("Регистрация успешно завершена");
         }
-        return ResponseEntity.internalServerError().build();
+        return ResponseEntity.badRequest().body("Ссылка недействительна или уже использована");
     }
 }
@@ -1,71 +1,233 @@
 package org.example.controller;
 
 import lombok.extern.log4j.Log4j;
+import org.example.dao.projection.FileMetadata;
+import org.example.entity.enums.ContentCodec;
 import org.example.service.FileService;
-import org.springframework.http.ContentDisposition;
+import org.example.utils.BufferPool;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static java.nio.file.StandardOpenOption.READ;
 
 @Log4j
 @RequestMapping("/file")
 @RestController
 public class FileController {
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+    private static final String CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365))
+            .cachePublic()
+            .getHeaderValue() + ", immutable";
     private final FileService fileService;
+    private final BufferPool bufferPool;
 
-    public FileController(FileService fileService) {
+    public FileController(FileService fileService, BufferPool bufferPool) {
         this.fileService = fileService;
+        this.bufferPool = bufferPool;
     }
 
     @RequestMapping(method = RequestMethod.GET, value = "/get-doc")
-    public void getDoc(@RequestParam("id") String id, HttpServletResponse response) {
+    public void getDoc(@RequestParam("id") String id, HttpServletRequest request, HttpServletResponse response) {
         //TODO для формирования бедреквест добавить ControllerAdvice
         var doc = fileService.getDocument(id);
         if (doc == null) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             return;
         }
-        response.setContentType(MediaType.parseMediaType(doc.getMimeType()).toString());
-        response.setHeader("Content-disposition", "attachment; filename= " + doc.getDocName());
-        response.setStatus(HttpServletResponse.SC_OK);
-        var binaryContent = doc.getBinaryContent();
-        try {
-            var out = response.getOutputStream();
-            out.write(binaryContent.getFileAsArrayOfBytes());
-            out.close();
-        } catch (IOException e) {
-            log.error(e);
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        var encoded = servesEncoded(doc, request);
+        if (isNotModified(doc, encoded, request, response)) {
+            return;
         }
-
+        response.setContentType(MediaType.parseMediaType(doc.getMimeType()).toString());
+        response.setHeader("Content-disposition", "attachment; filename= " + doc.getFileName());
+        writeContent(doc, encoded, request, response);
     }
 
     @RequestMapping(method = RequestMethod.GET, value = "/get-photo")
-    public void getPhoto(@RequestParam("id") String id, HttpServletResponse response) {
+    public void getPhoto(@RequestParam("id") String id, HttpServletRequest request, HttpServletResponse response) {
         //TODO для формирования бедреквест добавить ControllerAdvice
         var photo = fileService.getPhoto(id);
         if (photo == null) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             return;
         }
+        var encoded = servesEncoded(photo, request);
+        if (isNotModified(photo, encoded, request, response)) {
+            return;
+        }
         response.setContentType(MediaType.IMAGE_JPEG.toString());
         response.setHeader("Content-disposition", "attachment;");
-        response.setStatus(HttpServletResponse.SC_OK);
+        writeContent(photo, encoded, request, response);
+    }
+
+    /**
+     * Compressed content is passed through as stored when the client accepts gzip,
+     * and decompressed on the fly otherwise.
+     */
+    private static boolean servesEncoded(FileMetadata file, HttpServletRequest request) {
+        return file.getCodec() == ContentCodec.GZIP && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    /**
+     * Stored content never changes, so its identity doubles as a strong validator.
+     * Sets the caching headers and answers 304 when the client already has it.
+     */
+    private boolean isNotModified(FileMetadata file, boolean encoded,
+                                  HttpServletRequest request, HttpServletResponse response) {
+        var etag = etagOf(file, encoded);
+        if (file.getCodec() == ContentCodec.GZIP) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (encoded) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        var ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && matchesEtag(ifNoneMatch, etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
 
-        var binaryContent = photo.getBinaryContent();
+    private void writeContent(FileMetadata file, boolean encoded,
+                              HttpServletRequest request, HttpServletResponse response) {
+        var storedAsIs = encoded || file.getCodec() != ContentCodec.GZIP;
+        var size = encoded ? file.getStoredSize() : file.getFileSize();
+        long start = 0;
+        long length = size != null ? size : Long.MAX_VALUE;
+        response.setStatus(HttpServletResponse.SC_OK);
+        if (size != null) {
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            var range = requestedRange(request, etagOf(file, encoded));
+            if (range != null) {
+                if (!isSatisfiable(range, size)) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                start = range.getRangeStart(size);
+                length = range.getRangeEnd(size) - start + 1;
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (start + length - 1) + "/" + size);
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            }
+            response.setContentLengthLong(length);
+        }
         try {
-            var out = response.getOutputStream();
-            out.write(binaryContent.getFileAsArrayOfBytes());
-            out.close();
+            var localPath = storedAsIs ? fileService.getLocalContentPath(file) : Optional.<Path>empty();
+            if (localPath.isPresent() && size != null) {
+                writeLocalFile(localPath.get(), start, length, request, response);
+                return;
+            }
+            try (var in = storedAsIs
+                    ? fileService.getContent(file, start, length)
+                    : fileService.getDecodedContent(file, start, length)) {
+                var out = response.getOutputStream();
+                bufferPool.copy(in, out);
+                out.close();
+            }
         } catch (IOException e) {
             log.error(e);
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
         }
     }
+
+    private void writeLocalFile(Path path, long start, long length,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, path.toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, start + length);
+            return;
+        }
+        try (var channel = FileChannel.open(path, READ)) {
+            var out = response.getOutputStream();
+            var target = Channels.newChannel(out);
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, target);
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * @return the single range to serve, or null to serve the whole content. Multiple
+     * ranges, malformed headers and an If-Range for another version all fall back to
+     * the full body, which RFC 9110 allows.
+     */
+    private static HttpRange requestedRange(HttpServletRequest request, String etag) {
+        var rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        var ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.trim().equals(etag)) {
+            return null;
+        }
+        try {
+            var ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A range is satisfiable when it starts inside the content. Spring does not check
+     * that, it only clamps the end; a suffix longer than the content starts at 0 and
+     * so covers all of it.
+     */
+    private static boolean isSatisfiable(HttpRange range, long size) {
+        return size > 0 && range.getRangeStart(size) < size;
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(candidate -> candidate.startsWith("W/") ? candidate.substring(2) : candidate)
+                .anyMatch(candidate -> candidate.equals("*") || candidate.equals(etag));
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        return Arrays.stream(acceptEncoding.split(","))
+                .map(coding -> coding.trim().toLowerCase().split(";"))
+                .filter(parts -> parts[0].trim().equals("gzip") || parts[0].trim().equals("*"))
+                .anyMatch(parts -> Arrays.stream(parts)
+                        .skip(1)
+                        .map(String::trim)
+                        .noneMatch(param -> param.matches("q=0(\\.0*)?")));
+    }
+
+    private static String etagOf(FileMetadata file, boolean encoded) {
+        var identity = file.getContentHash() != null
+                ? file.getContentHash()
+                : file.getContentRef();
+        return "\"" + identity + (encoded ? "-gzip" : "") + "\"";
+    }
 }
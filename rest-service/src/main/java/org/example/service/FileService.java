@@ -1,11 +1,15 @@
 package org.example.service;
 
-import org.example.entity.AppDocument;
-import org.example.entity.AppPhoto;
-import org.example.entity.BinaryContent;
-import org.springframework.core.io.FileSystemResource;
+import org.example.dao.projection.FileMetadata;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
 
 public interface FileService {
-    AppDocument getDocument(String id);
-    AppPhoto getPhoto(String id);
+    FileMetadata getDocument(String id);
+    FileMetadata getPhoto(String id);
+    InputStream getContent(FileMetadata file, long offset, long length);
+    InputStream getDecodedContent(FileMetadata file, long offset, long length);
+    Optional<Path> getLocalContentPath(FileMetadata file);
 }
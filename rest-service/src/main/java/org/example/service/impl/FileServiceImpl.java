@@ -1,46 +1,107 @@
 package org.example.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import lombok.extern.log4j.Log4j;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.example.dao.AppDocumentDAO;
 import org.example.dao.AppPhotoDAO;
-import org.example.entity.AppDocument;
-import org.example.entity.AppPhoto;
-import org.example.entity.BinaryContent;
+import org.example.dao.projection.FileMetadata;
+import org.example.entity.enums.ContentCodec;
 import org.example.service.FileService;
+import org.example.storage.BlobStore;
+import org.example.storage.BlobStoreException;
 import org.example.utils.CryptoTool;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 @Log4j
 @Service
 public class FileServiceImpl implements FileService {
+    private static final int DECODE_BUFFER_SIZE = 16 * 1024;
     private final AppDocumentDAO appDocumentDAO;
     private final AppPhotoDAO appPhotoDAO;
     private final CryptoTool cryptoTool;
+    private final BlobStore blobStore;
+    private final Cache<String, FileMetadata> fileMetadataCache;
+    private final Cache<String, byte[]> fileContentCache;
+    @Value("${service.file_cache.content_max_blob_size:262144}")
+    private long maxCachedBlobSize;
 
-    public FileServiceImpl(AppDocumentDAO appDocumentDAO, AppPhotoDAO appPhotoDAO, CryptoTool cryptoTool) {
+    public FileServiceImpl(AppDocumentDAO appDocumentDAO, AppPhotoDAO appPhotoDAO, CryptoTool cryptoTool, BlobStore blobStore,
+                           Cache<String, FileMetadata> fileMetadataCache, Cache<String, byte[]> fileContentCache) {
         this.appDocumentDAO = appDocumentDAO;
         this.appPhotoDAO = appPhotoDAO;
         this.cryptoTool = cryptoTool;
+        this.blobStore = blobStore;
+        this.fileMetadataCache = fileMetadataCache;
+        this.fileContentCache = fileContentCache;
     }
 
     @Override
-    public AppDocument getDocument(String hash) {
+    public FileMetadata getDocument(String hash) {
         var id = cryptoTool.idOf(hash);
         if(id==null){return null;}
-        return appDocumentDAO.findById(id).orElse(null);
+        return fileMetadataCache.get("doc:" + id, key -> appDocumentDAO.findMetadataById(id).orElse(null));
     }
 
     @Override
-    public AppPhoto getPhoto(String hash) {
+    public FileMetadata getPhoto(String hash) {
         var id = cryptoTool.idOf(hash);
         if (id == null) {
             return null;
         }
-        return appPhotoDAO.findById(id).orElse(null);
+        return fileMetadataCache.get("photo:" + id, key -> appPhotoDAO.findMetadataById(id).orElse(null));
+    }
+
+    @Override
+    public InputStream getContent(FileMetadata file, long offset, long length) {
+        var size = file.getStoredSize() != null ? file.getStoredSize() : file.getFileSize();
+        if (size == null || size > maxCachedBlobSize) {
+            return blobStore.read(file.getContentRef(), offset, length);
+        }
+        var content = fileContentCache.get(file.getContentRef(), this::readContent);
+        var from = (int) Math.min(offset, content.length);
+        var count = (int) Math.min(length, content.length - from);
+        return new ByteArrayInputStream(content, from, count);
+    }
+
+    @Override
+    public InputStream getDecodedContent(FileMetadata file, long offset, long length) {
+        var stored = getContent(file, 0, Long.MAX_VALUE);
+        if (file.getCodec() != ContentCodec.GZIP) {
+            return stored;
+        }
+        try {
+            var decoded = new GZIPInputStream(stored, DECODE_BUFFER_SIZE);
+            decoded.skipNBytes(offset);
+            return new BoundedInputStream(decoded, length);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(stored);
+            throw new BlobStoreException("Failed to decode " + file.getContentRef(), e);
+        }
+    }
+
+    @Override
+    public Optional<Path> getLocalContentPath(FileMetadata file) {
+        return blobStore.findLocalPath(file.getContentRef());
+    }
+
+    private byte[] readContent(String contentRef) {
+        try (var in = blobStore.read(contentRef)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new BlobStoreException("Failed to read " + contentRef, e);
+        }
     }
 }
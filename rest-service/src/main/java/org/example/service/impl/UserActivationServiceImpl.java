@@ -1,29 +1,51 @@
 package org.example.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.log4j.Log4j;
 import org.example.dao.AppUserDAO;
+import org.example.publisher.ConfirmingPublisher;
 import org.example.service.UserActivationService;
 import org.example.utils.CryptoTool;
 import org.springframework.stereotype.Service;
 
+import static org.example.model.RabbitQueue.APP_USER_CACHE_EVICTION;
+
 @Service
+@Log4j
 public class UserActivationServiceImpl implements UserActivationService {
     private final AppUserDAO appUserDAO;
     private final CryptoTool cryptoTool;
+    private final Cache<String, Boolean> rejectedActivationCache;
+    private final ConfirmingPublisher confirmingPublisher;
 
-    public UserActivationServiceImpl(AppUserDAO appUserDAO, CryptoTool cryptoTool) {
+    public UserActivationServiceImpl(AppUserDAO appUserDAO, CryptoTool cryptoTool,
+                                     Cache<String, Boolean> rejectedActivationCache,
+                                     ConfirmingPublisher confirmingPublisher) {
         this.appUserDAO = appUserDAO;
         this.cryptoTool = cryptoTool;
+        this.rejectedActivationCache = rejectedActivationCache;
+        this.confirmingPublisher = confirmingPublisher;
     }
 
+    /**
+     * Activates the user in a single conditional update. A hash that does not decode,
+     * names no user or was already used is remembered and rejected without touching
+     * the database again; a successful activation is remembered too, since the link
+     * cannot be used twice.
+     */
     @Override
     public boolean activation(String cryptoUserId) {
+        if (rejectedActivationCache.getIfPresent(cryptoUserId) != null) {
+            return false;
+        }
         var userId = cryptoTool.idOf(cryptoUserId);
-        var optional = appUserDAO.findById(userId);
-        if(optional.isPresent()){
-            var user =optional.get();
-            user.setIsActive(true);
-            return true;
+        var activated = userId != null && appUserDAO.activate(userId) > 0;
+        rejectedActivationCache.put(cryptoUserId, Boolean.TRUE);
+        if (activated) {
+            // the node caches users, make it load the activated state
+            confirmingPublisher.convertAndPublish(APP_USER_CACHE_EVICTION, "", userId);
+            log.debug("User " + userId + " is activated");
         }
-        return false;
+        return activated;
     }
 }
@@ -0,0 +1,111 @@
+package org.example.controller;
+
+import org.example.dao.projection.FileMetadata;
+import org.example.entity.enums.ContentCodec;
+import org.example.service.FileService;
+import org.example.utils.BufferPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class FileControllerTest {
+    private static final int SIZE = 500;
+    private static final String ETAG = "\"5d41402abc4b2a76b9719d911017c592\"";
+
+    private final byte[] content = new byte[SIZE];
+    private final FileService fileService = mock(FileService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < SIZE; i++) {
+            content[i] = (byte) i;
+        }
+        var file = mock(FileMetadata.class);
+        when(file.getFileName()).thenReturn("report.pdf");
+        when(file.getMimeType()).thenReturn("application/pdf");
+        when(file.getFileSize()).thenReturn((long) SIZE);
+        when(file.getStoredSize()).thenReturn((long) SIZE);
+        when(file.getCodec()).thenReturn(ContentCodec.IDENTITY);
+        when(file.getContentHash()).thenReturn("5d41402abc4b2a76b9719d911017c592");
+        when(fileService.getDocument("doc")).thenReturn(file);
+        when(fileService.getLocalContentPath(file)).thenReturn(Optional.empty());
+        when(fileService.getContent(any(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            long start = invocation.getArgument(1);
+            long length = invocation.getArgument(2);
+            return new ByteArrayInputStream(content, (int) start, (int) Math.min(length, SIZE - start));
+        });
+        mockMvc = MockMvcBuilders.standaloneSetup(new FileController(fileService, new BufferPool(64, 2))).build();
+    }
+
+    @Test
+    public void testWholeContent() throws Exception {
+        mockMvc.perform(get("/file/get-doc").param("id", "doc"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, SIZE))
+                .andExpect(content().bytes(content));
+    }
+
+    @Test
+    public void testRange() throws Exception {
+        mockMvc.perform(get("/file/get-doc").param("id", "doc").header(HttpHeaders.RANGE, "bytes=100-199"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 100-199/500"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100))
+                .andExpect(content().bytes(Arrays.copyOfRange(content, 100, 200)));
+    }
+
+    @Test
+    public void testSuffixLongerThanContentServesAll() throws Exception {
+        mockMvc.perform(get("/file/get-doc").param("id", "doc").header(HttpHeaders.RANGE, "bytes=-1000"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-499/500"))
+                .andExpect(content().bytes(content));
+    }
+
+    @Test
+    public void testRangeStartingPastTheEndIsNotSatisfiable() throws Exception {
+        for (var range : new String[]{"bytes=1000-", "bytes=500-", "bytes=500-600", "bytes=-0"}) {
+            mockMvc.perform(get("/file/get-doc").param("id", "doc").header(HttpHeaders.RANGE, range))
+                    .andExpect(status().isRequestedRangeNotSatisfiable())
+                    .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */500"));
+        }
+        verify(fileService, never()).getContent(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+        mockMvc.perform(get("/file/get-doc").param("id", "doc").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    public void testIfRange() throws Exception {
+        mockMvc.perform(get("/file/get-doc").param("id", "doc")
+                        .header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, ETAG))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/500"));
+        mockMvc.perform(get("/file/get-doc").param("id", "doc")
+                        .header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, "\"another-version\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(content));
+    }
+}